@@ -0,0 +1,142 @@
+package com.parkingLot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parkingLot.exceptions.ErrorResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Bulkhead para el modo de hilos virtuales: sin el tope de hilos de Tomcat, una ráfaga de porterías crearía
+// miles de solicitudes esperando una conexión del pool. Se admiten a lo sumo solicitudes-por-conexion veces
+// el tamaño del pool de Hikari; el resto espera un momento y luego recibe 503 con Retry-After.
+// Las exportaciones asíncronas conservan el permiso hasta terminar de escribirse, porque mantienen su conexión
+// durante toda la descarga; los flujos SSE lo devuelven al iniciar, ya que solo esperan eventos sin conexión.
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permisos;
+    private final long esperaMs;
+    private final ObjectMapper objectMapper;
+
+    public LimiteConcurrenciaFilter(DataSource dataSource,
+                                    ObjectMapper objectMapper,
+                                    @Value("${parking.hilos-virtuales.limite-solicitudes:0}") int limiteSolicitudes,
+                                    @Value("${parking.hilos-virtuales.solicitudes-por-conexion:4}") int solicitudesPorConexion,
+                                    @Value("${parking.hilos-virtuales.espera-ms:200}") long esperaMs) {
+        int tamanoPool = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+        int limite = limiteSolicitudes > 0 ? limiteSolicitudes : tamanoPool * solicitudesPorConexion;
+
+        this.permisos = new Semaphore(limite, true);
+        this.esperaMs = esperaMs;
+        this.objectMapper = objectMapper;
+        log.info("Límite de solicitudes concurrentes: {} (pool de {} conexiones)", limite, tamanoPool);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean admitida;
+        try {
+            admitida = permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitida = false;
+        }
+
+        if (!admitida) {
+            rechazar(response);
+            return;
+        }
+
+        boolean liberarAlTerminar = true;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !esFlujoDeEventos(response)) {
+                request.getAsyncContext().addListener(new LiberarAlCompletar());
+                liberarAlTerminar = false;
+            }
+        } finally {
+            if (liberarAlTerminar) {
+                permisos.release();
+            }
+        }
+    }
+
+    private static boolean esFlujoDeEventos(HttpServletResponse response) {
+        return response.getContentType() != null
+                && response.getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    // Tras un error o un timeout el contenedor también notifica onComplete: el permiso se devuelve una sola vez
+    private class LiberarAlCompletar implements AsyncListener {
+
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo ciclo asíncrono descarta los listeners registrados: se vuelve a registrar para no perder el permiso
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void liberar() {
+            if (liberado.compareAndSet(false, true)) {
+                permisos.release();
+            }
+        }
+    }
+
+    private void rechazar(HttpServletResponse response) throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message("El servicio está saturado, intente de nuevo en unos segundos")
+                .build();
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+}
@@ -0,0 +1,76 @@
+package com.parkingLot.config;
+
+import com.parkingLot.exceptions.BadRequestException;
+import com.parkingLot.repositories.VehiculoHistorialRepository;
+import com.parkingLot.repositories.VehiculoRepository;
+import com.parkingLot.utils.PlacaCodec;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+// Corre al crear el bean, antes de que arranque el servidor web: PlacasActivasService depende de este bean,
+// porque la salida busca el vehículo por placa_codigo y un registro sin codificar quedaría atascado.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PlacaCodigoInitializer {
+
+    private static final int TAMANO_LOTE = 500;
+
+    private final VehiculoRepository vehiculoRepository;
+    private final VehiculoHistorialRepository vehiculoHistorialRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void inicializar() {
+        // Completa placa_codigo en registros creados antes de que existiera la columna
+        int vehiculos = codificarPendientes(vehiculoRepository::findPlacasSinCodificar,
+                vehiculoRepository::actualizarPlacaCodigo);
+        int historial = codificarPendientes(vehiculoHistorialRepository::findPlacasSinCodificar,
+                vehiculoHistorialRepository::actualizarPlacaCodigo);
+
+        if (vehiculos > 0 || historial > 0) {
+            log.info("Placas codificadas: {} en vehiculos, {} en historial", vehiculos, historial);
+        }
+    }
+
+    private int codificarPendientes(BiFunction<Long, Limit, List<Object[]>> buscarPendientes,
+                                    BiConsumer<Long, Long> actualizar) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int total = 0;
+        long ultimoId = 0L;
+
+        while (true) {
+            List<Object[]> pendientes = buscarPendientes.apply(ultimoId, Limit.of(TAMANO_LOTE));
+            if (pendientes.isEmpty()) {
+                return total;
+            }
+
+            Integer codificados = transactionTemplate.execute(status -> {
+                int actualizados = 0;
+                for (Object[] pendiente : pendientes) {
+                    Long id = (Long) pendiente[0];
+                    String placa = (String) pendiente[1];
+                    try {
+                        actualizar.accept(id, PlacaCodec.codificar(placa));
+                        actualizados++;
+                    } catch (BadRequestException e) {
+                        log.warn("No se pudo codificar la placa '{}' del registro ID: {}", placa, id);
+                    }
+                }
+                return actualizados;
+            });
+
+            total += codificados != null ? codificados : 0;
+            ultimoId = (Long) pendientes.get(pendientes.size() - 1)[0];
+        }
+    }
+}
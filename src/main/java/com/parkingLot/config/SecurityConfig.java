@@ -4,7 +4,9 @@ import com.parkingLot.security.CustomAccessDeniedHandler;
 import com.parkingLot.security.CustomAuthenticationEntryPoint;
 import com.parkingLot.security.JwtAuthenticationFilter;
 import com.parkingLot.services.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -33,16 +35,22 @@ public class SecurityConfig {
     private final CustomAccessDeniedHandler accessDeniedHandler;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Los despachos asíncrono y de error de una respuesta en curso (exportaciones, SSE) no traen
+                        // el token; la solicitud original ya fue autorizada
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/socio/**").hasRole("SOCIO")
                         .requestMatchers("/api/vehiculos/top-10-frecuentes/**").hasAnyRole("ADMIN", "SOCIO")
                         .requestMatchers("/api/vehiculos/primera-vez/**").hasAnyRole("ADMIN", "SOCIO")
                         .requestMatchers("/api/vehiculos/buscar/**").hasAnyRole("ADMIN", "SOCIO")
+                        .requestMatchers("/api/vehiculos/historial/**").hasAnyRole("ADMIN", "SOCIO")
+                        .requestMatchers("/api/vehiculos/estadisticas/**").hasAnyRole("ADMIN", "SOCIO")
                         .requestMatchers("/api/vehiculos/ganancias/**").hasRole("SOCIO")
                         .requestMatchers("/api/vehiculos/**").hasRole("SOCIO")
                         .anyRequest().authenticated()
@@ -54,16 +62,16 @@ public class SecurityConfig {
                         .authenticationEntryPoint(authenticationEntryPoint)
                         .accessDeniedHandler(accessDeniedHandler)
                 )
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -73,7 +81,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // El costo se elige con BCryptStrengthBenchmark; los hashes existentes conservan el costo con que se crearon
+    public PasswordEncoder passwordEncoder(@Value("${parking.seguridad.bcrypt.costo:10}") int costo) {
+        return new BCryptPasswordEncoder(costo);
     }
 }
@@ -0,0 +1,41 @@
+package com.parkingLot.controllers;
+
+import com.parkingLot.dto.AuthResponse;
+import com.parkingLot.services.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/usuarios")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class UsuarioController {
+
+    private final UsuarioService usuarioService;
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<AuthResponse> desactivar(@PathVariable Long id) {
+        AuthResponse response = usuarioService.desactivar(id);
+        return ResponseEntity.ok(response);
+    }
+
+    @PatchMapping("/{id}/activar")
+    public ResponseEntity<AuthResponse> activar(@PathVariable Long id) {
+        AuthResponse response = usuarioService.activar(id);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{id}/revocar-tokens")
+    public ResponseEntity<AuthResponse> revocarTokens(@PathVariable Long id) {
+        AuthResponse response = usuarioService.revocarTokens(id);
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{id}/permanente")
+    public ResponseEntity<Void> eliminarDefinitivamente(@PathVariable Long id) {
+        usuarioService.eliminarDefinitivamente(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,20 +1,36 @@
 package com.parkingLot.controllers;
 
+import com.parkingLot.dto.EstadisticaPlacaResponse;
+import com.parkingLot.dto.FiltroHistorialRequest;
 import com.parkingLot.dto.GananciasResponse;
+import com.parkingLot.dto.HistorialVehiculoResponse;
+import com.parkingLot.dto.IngresoLoteRequest;
 import com.parkingLot.dto.IngresoRequest;
 import com.parkingLot.dto.IngresoResponse;
+import com.parkingLot.dto.PaginaResponse;
+import com.parkingLot.dto.ResultadoLoteResponse;
+import com.parkingLot.dto.SalidaLoteRequest;
 import com.parkingLot.dto.SalidaRequest;
 import com.parkingLot.dto.SalidaResponse;
+import com.parkingLot.dto.SerieGananciasResponse;
 import com.parkingLot.dto.TopVehiculoResponse;
 import com.parkingLot.dto.VehiculoPrimeraVezResponse;
 import com.parkingLot.dto.VehiculoResponse;
+import com.parkingLot.services.HistorialVehiculoService;
+import com.parkingLot.services.OcupacionStreamService;
 import com.parkingLot.services.VehiculoService;
+import com.parkingLot.utils.EscritorNdjson;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -23,6 +39,8 @@ import java.util.List;
 public class VehiculoController {
 
     private final VehiculoService vehiculoService;
+    private final HistorialVehiculoService historialVehiculoService;
+    private final OcupacionStreamService ocupacionStreamService;
 
     @PostMapping("/registrar-ingreso")
     public ResponseEntity<IngresoResponse> registrarIngreso(@Valid @RequestBody IngresoRequest request) {
@@ -36,21 +54,64 @@ public class VehiculoController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/registrar-ingreso/lote")
+    public ResponseEntity<ResultadoLoteResponse> registrarIngresosEnLote(@Valid @RequestBody IngresoLoteRequest request) {
+        ResultadoLoteResponse response = vehiculoService.registrarIngresosEnLote(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/registrar-salida/lote")
+    public ResponseEntity<ResultadoLoteResponse> registrarSalidasEnLote(@Valid @RequestBody SalidaLoteRequest request) {
+        ResultadoLoteResponse response = vehiculoService.registrarSalidasEnLote(request);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/parqueadero/{parqueaderoId}")
     public ResponseEntity<List<VehiculoResponse>> listarVehiculosEnParqueadero(@PathVariable Long parqueaderoId) {
         List<VehiculoResponse> vehiculos = vehiculoService.listarVehiculosEnParqueadero(parqueaderoId);
         return ResponseEntity.ok(vehiculos);
     }
 
+    @GetMapping("/parqueadero/{parqueaderoId}/pagina")
+    public ResponseEntity<PaginaResponse<VehiculoResponse>> listarVehiculosEnParqueaderoPaginado(
+            @PathVariable Long parqueaderoId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaResponse<VehiculoResponse> pagina =
+                vehiculoService.listarVehiculosEnParqueaderoPaginado(parqueaderoId, cursor, limite);
+        return ResponseEntity.ok(pagina);
+    }
+
+    @GetMapping(value = "/parqueadero/{parqueaderoId}/exportar", produces = EscritorNdjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportarVehiculosEnParqueadero(@PathVariable Long parqueaderoId) {
+        StreamingResponseBody cuerpo = vehiculoService.exportarVehiculosEnParqueadero(parqueaderoId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(EscritorNdjson.MEDIA_TYPE))
+                .body(cuerpo);
+    }
+
+    // Server-Sent Events con la ocupación del parqueadero: el estado actual al conectar y luego cada cambio
+    @GetMapping(value = "/parqueadero/{parqueaderoId}/ocupacion/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirOcupacion(@PathVariable Long parqueaderoId) {
+        return ocupacionStreamService.suscribir(parqueaderoId);
+    }
+
+    // limite cambia el tamaño del ranking (10 por defecto); dias lo restringe a las salidas de los últimos N días
     @GetMapping("/top-10-frecuentes")
-    public ResponseEntity<List<TopVehiculoResponse>> obtenerTop10VehiculosMasFrecuentes() {
-        List<TopVehiculoResponse> topVehiculos = vehiculoService.obtenerTop10VehiculosMasFrecuentes();
+    public ResponseEntity<List<TopVehiculoResponse>> obtenerTop10VehiculosMasFrecuentes(
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) Integer dias) {
+        List<TopVehiculoResponse> topVehiculos = vehiculoService.obtenerVehiculosMasFrecuentes(limite, dias);
         return ResponseEntity.ok(topVehiculos);
     }
 
     @GetMapping("/top-10-frecuentes/parqueadero/{parqueaderoId}")
-    public ResponseEntity<List<TopVehiculoResponse>> obtenerTop10VehiculosMasFrecuentesPorParqueadero(@PathVariable Long parqueaderoId) {
-        List<TopVehiculoResponse> topVehiculos = vehiculoService.obtenerTop10VehiculosMasFrecuentesPorParqueadero(parqueaderoId);
+    public ResponseEntity<List<TopVehiculoResponse>> obtenerTop10VehiculosMasFrecuentesPorParqueadero(
+            @PathVariable Long parqueaderoId,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) Integer dias) {
+        List<TopVehiculoResponse> topVehiculos =
+                vehiculoService.obtenerVehiculosMasFrecuentesPorParqueadero(parqueaderoId, limite, dias);
         return ResponseEntity.ok(topVehiculos);
     }
 
@@ -60,6 +121,13 @@ public class VehiculoController {
         return ResponseEntity.ok(vehiculosPrimeraVez);
     }
 
+    @GetMapping("/estadisticas/parqueadero/{parqueaderoId}/placa/{placa}")
+    public ResponseEntity<EstadisticaPlacaResponse> obtenerEstadisticaPlaca(@PathVariable Long parqueaderoId,
+                                                                            @PathVariable String placa) {
+        EstadisticaPlacaResponse estadistica = vehiculoService.obtenerEstadisticaPlaca(parqueaderoId, placa);
+        return ResponseEntity.ok(estadistica);
+    }
+
     @GetMapping("/ganancias/hoy/parqueadero/{parqueaderoId}")
     public ResponseEntity<GananciasResponse> obtenerGananciasHoy(@PathVariable Long parqueaderoId) {
         GananciasResponse ganancias = vehiculoService.obtenerGananciasHoy(parqueaderoId);
@@ -84,9 +152,34 @@ public class VehiculoController {
         return ResponseEntity.ok(ganancias);
     }
 
+    @GetMapping("/ganancias/parqueadero/{parqueaderoId}")
+    public ResponseEntity<SerieGananciasResponse> obtenerSerieGanancias(
+            @PathVariable Long parqueaderoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "day") String bucket) {
+        SerieGananciasResponse serie = vehiculoService.obtenerSerieGanancias(parqueaderoId, desde, hasta, bucket);
+        return ResponseEntity.ok(serie);
+    }
+
     @GetMapping("/buscar")
     public ResponseEntity<List<VehiculoResponse>> buscarVehiculosPorPlaca(@RequestParam String placa) {
         List<VehiculoResponse> vehiculos = vehiculoService.buscarVehiculosPorPlaca(placa);
         return ResponseEntity.ok(vehiculos);
     }
+
+    @GetMapping("/historial/buscar")
+    public ResponseEntity<PaginaResponse<HistorialVehiculoResponse>> buscarEnHistorial(FiltroHistorialRequest filtro) {
+        PaginaResponse<HistorialVehiculoResponse> pagina = historialVehiculoService.buscar(filtro);
+        return ResponseEntity.ok(pagina);
+    }
+
+    // Mismos filtros que /historial/buscar, sin límite de registros, como NDJSON
+    @GetMapping(value = "/historial/exportar", produces = EscritorNdjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportarHistorial(FiltroHistorialRequest filtro) {
+        StreamingResponseBody cuerpo = historialVehiculoService.exportar(filtro);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(EscritorNdjson.MEDIA_TYPE))
+                .body(cuerpo);
+    }
 }
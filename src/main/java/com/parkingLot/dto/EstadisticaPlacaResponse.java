@@ -0,0 +1,23 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaPlacaResponse {
+    private Long parqueaderoId;
+    private String placa;
+    private Long visitas;
+    private LocalDateTime primeraVisita;
+    private LocalDateTime ultimaVisita;
+    private Long minutosTotales;
+    private BigDecimal totalCobrado;
+}
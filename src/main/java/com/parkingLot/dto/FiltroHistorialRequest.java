@@ -0,0 +1,35 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Parámetros de consulta para la búsqueda en el historial; todos son opcionales
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroHistorialRequest {
+
+    private String placa;
+
+    // "prefijo" (por defecto) o "contiene"; "contiene" exige desde y hasta, como máximo 31 días
+    private String coincidencia;
+
+    private Long parqueaderoId;
+
+    // Rango de fechas de salida, ambos extremos incluidos
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+
+    private String cursor;
+
+    private Integer limite;
+}
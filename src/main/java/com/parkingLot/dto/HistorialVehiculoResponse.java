@@ -0,0 +1,23 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialVehiculoResponse {
+    private Long id;
+    private String placa;
+    private Long parqueaderoId;
+    private String parqueaderoNombre;
+    private LocalDateTime fechaIngreso;
+    private LocalDateTime fechaSalida;
+    private BigDecimal costo;
+}
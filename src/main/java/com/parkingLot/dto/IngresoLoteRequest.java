@@ -0,0 +1,22 @@
+package com.parkingLot.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngresoLoteRequest {
+
+    // Los elementos se validan uno a uno en el servicio para que un error no invalide todo el lote
+    @NotEmpty(message = "El lote de ingresos no puede estar vacío")
+    @Size(max = 1000, message = "El lote no puede tener más de 1000 ingresos")
+    private List<IngresoRequest> ingresos;
+}
@@ -0,0 +1,54 @@
+package com.parkingLot.dto;
+
+import com.parkingLot.exceptions.BadRequestException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+public enum IntervaloGanancias {
+    HOUR("hour"),
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    private final String parametro;
+
+    IntervaloGanancias(String parametro) {
+        this.parametro = parametro;
+    }
+
+    // Unidad aceptada por date_trunc de PostgreSQL
+    public String getParametro() {
+        return parametro;
+    }
+
+    public static IntervaloGanancias desdeParametro(String valor) {
+        for (IntervaloGanancias intervalo : values()) {
+            if (intervalo.parametro.equalsIgnoreCase(valor)) {
+                return intervalo;
+            }
+        }
+        throw new BadRequestException("El intervalo debe ser uno de: hour, day, week, month");
+    }
+
+    // Inicio del intervalo que contiene la fecha (las semanas empiezan el lunes, igual que date_trunc)
+    public LocalDateTime truncar(LocalDateTime fecha) {
+        return switch (this) {
+            case HOUR -> fecha.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> fecha.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> fecha.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> fecha.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+
+    public LocalDateTime siguiente(LocalDateTime inicio) {
+        return switch (this) {
+            case HOUR -> inicio.plusHours(1);
+            case DAY -> inicio.plusDays(1);
+            case WEEK -> inicio.plusWeeks(1);
+            case MONTH -> inicio.plusMonths(1);
+        };
+    }
+}
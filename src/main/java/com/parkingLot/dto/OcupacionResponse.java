@@ -0,0 +1,23 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcupacionResponse {
+    private Long parqueaderoId;
+    private Integer ocupados;
+    private Integer capacidadMaxima;
+    private Integer disponibles;
+    private String placaUltimoIngreso;
+    private LocalDateTime fechaUltimoIngreso;
+    private String placaUltimaSalida;
+    private LocalDateTime fechaUltimaSalida;
+}
@@ -0,0 +1,20 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaResponse<T> {
+    private List<T> items;
+    private Integer cantidad;
+    private Boolean hayMas;
+    // Se envía como parámetro cursor para obtener la página siguiente; null en la última página
+    private String siguienteCursor;
+}
@@ -0,0 +1,20 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+// Vista inmutable de un parqueadero para la ruta de ingreso/salida, sin el socio ni su rol
+@Value
+@Builder
+@AllArgsConstructor
+public class ParqueaderoSnapshot {
+    Long id;
+    String nombre;
+    Integer capacidadMaxima;
+    BigDecimal costoPorHora;
+    Boolean activo;
+    Long socioId;
+}
@@ -0,0 +1,33 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLoteResponse {
+
+    private Integer totalProcesados;
+    private Integer exitosos;
+    private Integer fallidos;
+    private List<Item> resultados;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        private Integer indice;
+        private String placa;
+        private Long parqueaderoId;
+        private Boolean exitoso;
+        private Long id;
+        private String mensaje;
+    }
+}
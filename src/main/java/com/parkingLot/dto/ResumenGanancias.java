@@ -0,0 +1,10 @@
+package com.parkingLot.dto;
+
+import java.math.BigDecimal;
+
+// Proyección de una fila agregada de ganancias calculada en base de datos
+public interface ResumenGanancias {
+    BigDecimal getTotalGanancias();
+
+    Long getCantidadVehiculos();
+}
@@ -0,0 +1,36 @@
+package com.parkingLot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieGananciasResponse {
+    private Long parqueaderoId;
+    private String parqueaderoNombre;
+    private LocalDate desde;
+    private LocalDate hasta;
+    private String intervalo;
+    private BigDecimal totalGanancias;
+    private Long cantidadVehiculos;
+    private List<Punto> puntos;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Punto {
+        private LocalDateTime inicio;
+        private BigDecimal totalGanancias;
+        private Long cantidadVehiculos;
+    }
+}
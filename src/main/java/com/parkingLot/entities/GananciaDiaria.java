@@ -0,0 +1,38 @@
+package com.parkingLot.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Ganancias acumuladas por parqueadero y día de salida, actualizadas en cada registro de salida
+@Entity
+@Table(name = "ganancias_diarias", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ganancias_diarias_parqueadero_fecha", columnNames = {"parqueadero_id", "fecha"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GananciaDiaria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "parqueadero_id", nullable = false)
+    private Long parqueaderoId;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "cantidad_vehiculos", nullable = false)
+    private Long cantidadVehiculos;
+}
@@ -42,7 +42,7 @@ public class Parqueadero {
     @Column(name = "costo_por_hora", nullable = false, precision = 10, scale = 2)
     private BigDecimal costoPorHora;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "socio_id", nullable = false)
     @NotNull(message = "El socio es obligatorio")
     private User socio;
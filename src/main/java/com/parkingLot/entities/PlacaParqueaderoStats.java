@@ -0,0 +1,51 @@
+package com.parkingLot.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Visitas acumuladas de cada placa en cada parqueadero, actualizadas en la misma transacción que la salida
+@Entity
+@Table(name = "placa_parqueadero_stats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_placa_parqueadero_stats", columnNames = {"parqueadero_id", "placa"})
+}, indexes = {
+        @Index(name = "idx_placa_parqueadero_stats_visitas", columnList = "parqueadero_id, visitas"),
+        @Index(name = "idx_placa_parqueadero_stats_placa", columnList = "placa")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlacaParqueaderoStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "parqueadero_id", nullable = false)
+    private Long parqueaderoId;
+
+    @Column(nullable = false, length = 20)
+    private String placa;
+
+    @Column(nullable = false)
+    private Long visitas;
+
+    // Ingreso de la primera estadía y salida de la última
+    @Column(name = "primera_visita", nullable = false)
+    private LocalDateTime primeraVisita;
+
+    @Column(name = "ultima_visita", nullable = false)
+    private LocalDateTime ultimaVisita;
+
+    @Column(name = "minutos_totales", nullable = false)
+    private Long minutosTotales;
+
+    @Column(name = "total_cobrado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalCobrado;
+}
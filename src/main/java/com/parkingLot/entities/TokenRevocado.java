@@ -0,0 +1,31 @@
+package com.parkingLot.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Tokens invalidados por logout; cada fila puede borrarse una vez pasada la expiración del token
+@Entity
+@Table(name = "tokens_revocados", indexes = {
+        @Index(name = "idx_tokens_revocados_expiracion", columnList = "expiracion")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocado {
+
+    @Id
+    private UUID jti;
+
+    @Column(nullable = false)
+    private LocalDateTime expiracion;
+
+    @Column(name = "revocado_en", nullable = false)
+    private LocalDateTime revocadoEn;
+}
@@ -40,7 +40,7 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private String password;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "role_id", nullable = false)
     private Role role;
 
@@ -54,6 +54,11 @@ public class User implements UserDetails {
     @Builder.Default
     private boolean active = true;
 
+    // Se incrementa para invalidar todos los tokens emitidos previamente al usuario
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private int tokenVersion = 0;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -1,5 +1,6 @@
 package com.parkingLot.entities;
 
+import com.parkingLot.utils.PlacaCodec;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -11,7 +12,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "vehiculos")
+@Table(name = "vehiculos", indexes = {
+        @Index(name = "idx_vehiculos_placa_codigo", columnList = "placa_codigo"),
+        @Index(name = "idx_vehiculos_parqueadero_ingreso", columnList = "parqueadero_id, fecha_ingreso, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_vehiculos_placa", columnNames = "placa")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -26,7 +32,11 @@ public class Vehiculo {
     @Column(nullable = false, length = 20)
     private String placa;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Placa codificada en base 36 (ver PlacaCodec), usada para búsquedas por igualdad
+    @Column(name = "placa_codigo")
+    private Long placaCodigo;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parqueadero_id", nullable = false)
     @NotNull(message = "El parqueadero es obligatorio")
     private Parqueadero parqueadero;
@@ -47,5 +57,8 @@ public class Vehiculo {
         if (fechaIngreso == null) {
             fechaIngreso = LocalDateTime.now();
         }
+        if (placaCodigo == null && placa != null) {
+            placaCodigo = PlacaCodec.codificar(placa);
+        }
     }
 }
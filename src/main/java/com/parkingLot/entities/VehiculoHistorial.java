@@ -1,5 +1,6 @@
 package com.parkingLot.entities;
 
+import com.parkingLot.utils.PlacaCodec;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -8,10 +9,16 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "vehiculos_historial")
+@Table(name = "vehiculos_historial", indexes = {
+        @Index(name = "idx_vehiculos_historial_placa_codigo_salida", columnList = "placa_codigo, fecha_salida, id"),
+        @Index(name = "idx_vehiculos_historial_parqueadero_placa", columnList = "parqueadero_id, placa_codigo"),
+        @Index(name = "idx_vehiculos_historial_parqueadero_salida", columnList = "parqueadero_id, fecha_salida, id"),
+        @Index(name = "idx_vehiculos_historial_salida", columnList = "fecha_salida, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -26,7 +33,11 @@ public class VehiculoHistorial {
     @Column(nullable = false, length = 20)
     private String placa;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Placa codificada en base 36 (ver PlacaCodec), usada para búsquedas por igualdad
+    @Column(name = "placa_codigo")
+    private Long placaCodigo;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parqueadero_id", nullable = false)
     @NotNull(message = "El parqueadero es obligatorio")
     private Parqueadero parqueadero;
@@ -39,11 +50,22 @@ public class VehiculoHistorial {
     @NotNull(message = "La fecha de salida es obligatoria")
     private LocalDateTime fechaSalida;
 
+    // Cobro calculado al registrar la salida y la tarifa vigente en ese momento.
+    // Son nulos en registros anteriores a que existieran estas columnas.
+    @Column(precision = 10, scale = 2)
+    private BigDecimal costo;
+
+    @Column(name = "tarifa_por_hora", precision = 10, scale = 2)
+    private BigDecimal tarifaPorHora;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (placaCodigo == null && placa != null) {
+            placaCodigo = PlacaCodec.codificar(placa);
+        }
     }
 }
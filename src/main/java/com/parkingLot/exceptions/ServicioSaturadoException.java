@@ -0,0 +1,7 @@
+package com.parkingLot.exceptions;
+
+public class ServicioSaturadoException extends RuntimeException {
+    public ServicioSaturadoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,69 @@
+package com.parkingLot.repositories;
+
+import com.parkingLot.dto.ResumenGanancias;
+import com.parkingLot.entities.GananciaDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface GananciaDiariaRepository extends JpaRepository<GananciaDiaria, Long> {
+
+    String INSERT_SQL = "INSERT INTO ganancias_diarias (parqueadero_id, fecha, total, cantidad_vehiculos) ";
+
+    // Compartido con la salida en una sola sentencia de VehiculoRepository.moverAHistorial
+    String CONFLICTO_SQL = "ON CONFLICT (parqueadero_id, fecha) DO UPDATE SET " +
+            "total = ganancias_diarias.total + EXCLUDED.total, " +
+            "cantidad_vehiculos = ganancias_diarias.cantidad_vehiculos + EXCLUDED.cantidad_vehiculos";
+
+    @Modifying
+    @Query(value = INSERT_SQL +
+            "VALUES (:parqueaderoId, :fecha, :monto, :cantidad) " +
+            CONFLICTO_SQL,
+            nativeQuery = true)
+    void acumular(@Param("parqueaderoId") Long parqueaderoId,
+            @Param("fecha") LocalDate fecha,
+            @Param("monto") BigDecimal monto,
+            @Param("cantidad") long cantidad);
+
+    @Query("SELECT COALESCE(SUM(g.total), 0) as totalGanancias, " +
+            "COALESCE(SUM(g.cantidadVehiculos), 0) as cantidadVehiculos " +
+            "FROM GananciaDiaria g " +
+            "WHERE g.parqueaderoId = :parqueaderoId " +
+            "AND g.fecha >= :desde " +
+            "AND g.fecha <= :hasta")
+    ResumenGanancias sumarPorParqueaderoYRango(
+            @Param("parqueaderoId") Long parqueaderoId,
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    // Agrupa los acumulados diarios en días, semanas (lunes) o meses según la unidad de date_trunc
+    @Query(value = "SELECT date_trunc(:unidad, CAST(g.fecha AS TIMESTAMP)), SUM(g.total), SUM(g.cantidad_vehiculos) " +
+            "FROM ganancias_diarias g " +
+            "WHERE g.parqueadero_id = :parqueaderoId " +
+            "AND g.fecha >= :desde " +
+            "AND g.fecha <= :hasta " +
+            "GROUP BY 1 " +
+            "ORDER BY 1",
+            nativeQuery = true)
+    List<Object[]> agruparPorIntervalo(
+            @Param("parqueaderoId") Long parqueaderoId,
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta,
+            @Param("unidad") String unidad);
+
+    @Modifying
+    @Query(value = "INSERT INTO ganancias_diarias (parqueadero_id, fecha, total, cantidad_vehiculos) " +
+            "SELECT vh.parqueadero_id, CAST(vh.fecha_salida AS DATE), SUM(" + VehiculoHistorialRepository.COSTO_ESTADIA_SQL + "), COUNT(*) " +
+            "FROM vehiculos_historial vh " +
+            "JOIN parqueaderos p ON p.id = vh.parqueadero_id " +
+            "GROUP BY vh.parqueadero_id, CAST(vh.fecha_salida AS DATE)",
+            nativeQuery = true)
+    int reconstruirDesdeHistorial();
+}
@@ -0,0 +1,102 @@
+package com.parkingLot.repositories;
+
+import com.parkingLot.dto.HistorialVehiculoResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Búsqueda en vehiculos_historial con filtros opcionales y paginación por keyset sobre (fecha_salida, id)
+@Repository
+public class HistorialBusquedaRepository {
+
+    private static final int TAMANO_FETCH = 500;
+
+    private static final String SELECT_HISTORIAL =
+            "SELECT vh.id, vh.placa, vh.parqueadero_id, p.nombre, vh.fecha_ingreso, vh.fecha_salida, " +
+                    VehiculoHistorialRepository.COSTO_ESTADIA_SQL + " AS costo " +
+                    "FROM vehiculos_historial vh " +
+                    "JOIN parqueaderos p ON p.id = vh.parqueadero_id " +
+                    "WHERE 1 = 1";
+
+    private static final RowMapper<HistorialVehiculoResponse> MAPPER = (rs, rowNum) -> HistorialVehiculoResponse.builder()
+            .id(rs.getLong(1))
+            .placa(rs.getString(2))
+            .parqueaderoId(rs.getLong(3))
+            .parqueaderoNombre(rs.getString(4))
+            .fechaIngreso(rs.getTimestamp(5).toLocalDateTime())
+            .fechaSalida(rs.getTimestamp(6).toLocalDateTime())
+            .costo(rs.getBigDecimal(7))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    // Con autocommit desactivado (dentro de una transacción) el driver de Postgres lee por bloques con un cursor
+    private final JdbcTemplate jdbcTemplateStreaming;
+
+    public HistorialBusquedaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcTemplateStreaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplateStreaming.setFetchSize(TAMANO_FETCH);
+    }
+
+    // placaDesde/placaHasta filtran por rango de placa_codigo (prefijo o placa exacta); placaContiene por subcadena
+    public record Filtro(Long placaDesde, Long placaHasta, String placaContiene, Long parqueaderoId,
+                         LocalDateTime desde, LocalDateTime hasta,
+                         LocalDateTime cursorFecha, Long cursorId) {
+    }
+
+    public List<HistorialVehiculoResponse> buscar(Filtro filtro, int limite) {
+        List<Object> argumentos = new ArrayList<>();
+        String sql = construirConsulta(filtro, argumentos) + " LIMIT ?";
+        argumentos.add(limite);
+        return jdbcTemplate.query(sql, MAPPER, argumentos.toArray());
+    }
+
+    // Debe consumirse dentro de una transacción y cerrarse al terminar
+    public Stream<HistorialVehiculoResponse> transmitir(Filtro filtro) {
+        List<Object> argumentos = new ArrayList<>();
+        String sql = construirConsulta(filtro, argumentos);
+        return jdbcTemplateStreaming.queryForStream(sql, MAPPER, argumentos.toArray());
+    }
+
+    private String construirConsulta(Filtro filtro, List<Object> argumentos) {
+        StringBuilder sql = new StringBuilder(SELECT_HISTORIAL);
+
+        if (filtro.placaDesde() != null) {
+            sql.append(" AND vh.placa_codigo BETWEEN ? AND ?");
+            argumentos.add(filtro.placaDesde());
+            argumentos.add(filtro.placaHasta());
+        }
+        if (filtro.placaContiene() != null) {
+            sql.append(" AND vh.placa LIKE ?");
+            argumentos.add("%" + filtro.placaContiene() + "%");
+        }
+        if (filtro.parqueaderoId() != null) {
+            sql.append(" AND vh.parqueadero_id = ?");
+            argumentos.add(filtro.parqueaderoId());
+        }
+        if (filtro.desde() != null) {
+            sql.append(" AND vh.fecha_salida >= ?");
+            argumentos.add(Timestamp.valueOf(filtro.desde()));
+        }
+        if (filtro.hasta() != null) {
+            sql.append(" AND vh.fecha_salida < ?");
+            argumentos.add(Timestamp.valueOf(filtro.hasta()));
+        }
+        if (filtro.cursorFecha() != null) {
+            // La cota simple sobre fecha_salida permite descartar particiones; la comparación de filas no
+            sql.append(" AND vh.fecha_salida <= ? AND (vh.fecha_salida, vh.id) < (?, ?)");
+            argumentos.add(Timestamp.valueOf(filtro.cursorFecha()));
+            argumentos.add(Timestamp.valueOf(filtro.cursorFecha()));
+            argumentos.add(filtro.cursorId());
+        }
+
+        sql.append(" ORDER BY vh.fecha_salida DESC, vh.id DESC");
+        return sql.toString();
+    }
+}
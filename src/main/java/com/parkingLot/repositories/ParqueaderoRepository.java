@@ -1,18 +1,32 @@
 package com.parkingLot.repositories;
 
+import com.parkingLot.dto.ParqueaderoSnapshot;
 import com.parkingLot.entities.Parqueadero;
 import com.parkingLot.entities.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ParqueaderoRepository extends JpaRepository<Parqueadero, Long> {
 
+    // Los listados se responden con los datos del socio: se traen con un JOIN en lugar de un SELECT por fila
+    @EntityGraph(attributePaths = "socio")
+    List<Parqueadero> findAllByOrderByIdAsc();
+
+    @EntityGraph(attributePaths = "socio")
     List<Parqueadero> findByActivoTrue();
 
+    @EntityGraph(attributePaths = "socio")
+    Optional<Parqueadero> findConSocioById(Long id);
+
+    // El socio ya está en el contexto de persistencia, la asociación se resuelve sin otra consulta
     List<Parqueadero> findBySocio(User socio);
 
     List<Parqueadero> findBySocioAndActivoTrue(User socio);
@@ -20,4 +34,14 @@ public interface ParqueaderoRepository extends JpaRepository<Parqueadero, Long>
     Optional<Parqueadero> findByIdAndActivoTrue(Long id);
 
     boolean existsByNombre(String nombre);
+
+    boolean existsBySocioId(Long socioId);
+
+    @Query("SELECT new com.parkingLot.dto.ParqueaderoSnapshot(p.id, p.nombre, p.capacidadMaxima, p.costoPorHora, p.activo, p.socio.id) " +
+            "FROM Parqueadero p WHERE p.id = :id")
+    Optional<ParqueaderoSnapshot> findSnapshotById(@Param("id") Long id);
+
+    @Query("SELECT new com.parkingLot.dto.ParqueaderoSnapshot(p.id, p.nombre, p.capacidadMaxima, p.costoPorHora, p.activo, p.socio.id) " +
+            "FROM Parqueadero p WHERE p.id IN :ids")
+    List<ParqueaderoSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<? extends Long> ids);
 }
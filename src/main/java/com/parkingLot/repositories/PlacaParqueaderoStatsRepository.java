@@ -0,0 +1,37 @@
+package com.parkingLot.repositories;
+
+import com.parkingLot.entities.PlacaParqueaderoStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PlacaParqueaderoStatsRepository extends JpaRepository<PlacaParqueaderoStats, Long> {
+
+    String INSERT_SQL = "INSERT INTO placa_parqueadero_stats " +
+            "(parqueadero_id, placa, visitas, primera_visita, ultima_visita, minutos_totales, total_cobrado) ";
+
+    // Suma una visita a la fila existente; compartido con la inserción por lotes de VehiculoLoteRepository
+    String CONFLICTO_SQL = "ON CONFLICT (parqueadero_id, placa) DO UPDATE SET " +
+            "visitas = placa_parqueadero_stats.visitas + EXCLUDED.visitas, " +
+            "primera_visita = LEAST(placa_parqueadero_stats.primera_visita, EXCLUDED.primera_visita), " +
+            "ultima_visita = GREATEST(placa_parqueadero_stats.ultima_visita, EXCLUDED.ultima_visita), " +
+            "minutos_totales = placa_parqueadero_stats.minutos_totales + EXCLUDED.minutos_totales, " +
+            "total_cobrado = placa_parqueadero_stats.total_cobrado + EXCLUDED.total_cobrado";
+
+    Optional<PlacaParqueaderoStats> findByParqueaderoIdAndPlaca(Long parqueaderoId, String placa);
+
+    @Modifying
+    @Query(value = INSERT_SQL +
+            "SELECT vh.parqueadero_id, vh.placa, COUNT(*), MIN(vh.fecha_ingreso), MAX(vh.fecha_salida), " +
+            "SUM(" + VehiculoHistorialRepository.MINUTOS_ESTADIA_SQL + "), " +
+            "SUM(" + VehiculoHistorialRepository.COSTO_ESTADIA_SQL + ") " +
+            "FROM vehiculos_historial vh " +
+            "JOIN parqueaderos p ON p.id = vh.parqueadero_id " +
+            "GROUP BY vh.parqueadero_id, vh.placa",
+            nativeQuery = true)
+    int reconstruirDesdeHistorial();
+}
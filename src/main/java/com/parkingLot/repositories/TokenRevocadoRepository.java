@@ -0,0 +1,22 @@
+package com.parkingLot.repositories;
+
+import com.parkingLot.entities.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, UUID> {
+
+    List<TokenRevocado> findByExpiracionAfter(LocalDateTime fecha);
+
+    @Modifying
+    @Query("DELETE FROM TokenRevocado t WHERE t.expiracion <= :fecha")
+    int deleteExpirados(@Param("fecha") LocalDateTime fecha);
+}
@@ -1,15 +1,30 @@
 package com.parkingLot.repositories;
 
 import com.parkingLot.entities.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // El rol se necesita en casi todos los usos (login, autorización), así que viaja en el mismo SELECT
+    @EntityGraph(attributePaths = "role")
     Optional<User> findByEmail(String email);
 
+    @EntityGraph(attributePaths = "role")
+    Optional<User> findConRolById(Long id);
+
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.email, u.active, u.tokenVersion FROM User u")
+    List<Object[]> findEstadosDeUsuarios();
+
+    @Query("SELECT u.email, u.active, u.tokenVersion FROM User u WHERE u.email = :email")
+    List<Object[]> findEstadoByEmail(@Param("email") String email);
 }
@@ -1,7 +1,10 @@
 package com.parkingLot.repositories;
 
+import com.parkingLot.dto.ResumenGanancias;
 import com.parkingLot.entities.VehiculoHistorial;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,31 +15,65 @@ import java.util.List;
 @Repository
 public interface VehiculoHistorialRepository extends JpaRepository<VehiculoHistorial, Long> {
 
+       // Rankings acotados a una ventana de salidas; el ranking histórico completo se mantiene en memoria
        @Query("SELECT vh.placa as placa, COUNT(vh) as cantidadRegistros " +
                      "FROM VehiculoHistorial vh " +
+                     "WHERE vh.fechaSalida >= :desde " +
                      "GROUP BY vh.placa " +
-                     "ORDER BY COUNT(vh) DESC " +
-                     "LIMIT 10")
-       List<Object[]> findTop10VehiculosMasFrecuentes();
+                     "ORDER BY COUNT(vh) DESC, vh.placa")
+       List<Object[]> findVehiculosMasFrecuentesDesde(@Param("desde") LocalDateTime desde, Limit limit);
 
        @Query("SELECT vh.placa as placa, COUNT(vh) as cantidadRegistros " +
                      "FROM VehiculoHistorial vh " +
-                     "WHERE vh.parqueadero.id = :parqueaderoId " +
+                     "WHERE vh.parqueadero.id = :parqueaderoId AND vh.fechaSalida >= :desde " +
                      "GROUP BY vh.placa " +
-                     "ORDER BY COUNT(vh) DESC " +
-                     "LIMIT 10")
-       List<Object[]> findTop10VehiculosMasFrecuentesByParqueadero(@Param("parqueaderoId") Long parqueaderoId);
-
-       @Query("SELECT COUNT(vh) > 0 FROM VehiculoHistorial vh " +
-                     "WHERE vh.placa = :placa AND vh.parqueadero.id = :parqueaderoId")
-       boolean existsByPlacaAndParqueaderoId(@Param("placa") String placa, @Param("parqueaderoId") Long parqueaderoId);
-
-       @Query("SELECT vh FROM VehiculoHistorial vh " +
-                     "WHERE vh.parqueadero.id = :parqueaderoId " +
-                     "AND vh.fechaSalida >= :fechaInicio " +
-                     "AND vh.fechaSalida <= :fechaFin")
-       List<VehiculoHistorial> findByParqueaderoIdAndFechaSalidaBetween(
+                     "ORDER BY COUNT(vh) DESC, vh.placa")
+       List<Object[]> findVehiculosMasFrecuentesByParqueaderoDesde(@Param("parqueaderoId") Long parqueaderoId,
+                     @Param("desde") LocalDateTime desde,
+                     Limit limit);
+
+       // Minutos completos de la estadía
+       String MINUTOS_ESTADIA_SQL = "CAST(FLOOR(EXTRACT(EPOCH FROM (vh.fecha_salida - vh.fecha_ingreso)) / 60) AS BIGINT)";
+
+       // Centésimas de hora facturadas por estadía, igual que VehiculoService.calcularCostoEstadia
+       String CENTESIMAS_HORA_SQL = "((" + MINUTOS_ESTADIA_SQL + " * 100 + 59) / 60)";
+
+       // Cobro guardado en la salida; para registros antiguos se recalcula con la tarifa del parqueadero
+       String COSTO_ESTADIA_SQL = "COALESCE(vh.costo, ROUND(COALESCE(vh.tarifa_por_hora, p.costo_por_hora) * " +
+                     CENTESIMAS_HORA_SQL + " / 100, 2))";
+
+       // Agrega en base de datos las salidas del rango [desde, hasta) sin hidratar entidades
+       @Query(value = "SELECT COUNT(*) AS \"cantidadVehiculos\", " +
+                     "COALESCE(SUM(" + COSTO_ESTADIA_SQL + "), 0) AS \"totalGanancias\" " +
+                     "FROM vehiculos_historial vh " +
+                     "JOIN parqueaderos p ON p.id = vh.parqueadero_id " +
+                     "WHERE vh.parqueadero_id = :parqueaderoId " +
+                     "AND vh.fecha_salida >= :desde " +
+                     "AND vh.fecha_salida < :hasta",
+                     nativeQuery = true)
+       ResumenGanancias resumirEstadias(
                      @Param("parqueaderoId") Long parqueaderoId,
-                     @Param("fechaInicio") LocalDateTime fechaInicio,
-                     @Param("fechaFin") LocalDateTime fechaFin);
+                     @Param("desde") LocalDateTime desde,
+                     @Param("hasta") LocalDateTime hasta);
+
+       @Query(value = "SELECT date_trunc('hour', vh.fecha_salida), SUM(" + COSTO_ESTADIA_SQL + "), COUNT(*) " +
+                     "FROM vehiculos_historial vh " +
+                     "JOIN parqueaderos p ON p.id = vh.parqueadero_id " +
+                     "WHERE vh.parqueadero_id = :parqueaderoId " +
+                     "AND vh.fecha_salida >= :desde " +
+                     "AND vh.fecha_salida < :hasta " +
+                     "GROUP BY 1 " +
+                     "ORDER BY 1",
+                     nativeQuery = true)
+       List<Object[]> agruparPorHora(
+                     @Param("parqueaderoId") Long parqueaderoId,
+                     @Param("desde") LocalDateTime desde,
+                     @Param("hasta") LocalDateTime hasta);
+
+       @Query("SELECT vh.id, vh.placa FROM VehiculoHistorial vh WHERE vh.placaCodigo IS NULL AND vh.id > :desdeId ORDER BY vh.id")
+       List<Object[]> findPlacasSinCodificar(@Param("desdeId") Long desdeId, Limit limite);
+
+       @Modifying
+       @Query("UPDATE VehiculoHistorial vh SET vh.placaCodigo = :placaCodigo WHERE vh.id = :id")
+       int actualizarPlacaCodigo(@Param("id") Long id, @Param("placaCodigo") Long placaCodigo);
 }
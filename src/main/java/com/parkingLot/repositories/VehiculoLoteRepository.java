@@ -0,0 +1,169 @@
+package com.parkingLot.repositories;
+
+import com.parkingLot.entities.Vehiculo;
+import com.parkingLot.entities.VehiculoHistorial;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Inserciones por lotes con JDBC: las entidades usan IDENTITY, lo que impide el batching de Hibernate
+@Repository
+@RequiredArgsConstructor
+public class VehiculoLoteRepository {
+
+    private static final String INSERT_VEHICULO =
+            "INSERT INTO vehiculos (placa, placa_codigo, parqueadero_id, fecha_ingreso, fecha_salida, activo) " +
+                    "VALUES (?, ?, ?, ?, NULL, TRUE)";
+
+    private static final String INSERT_VEHICULO_CON_ID =
+            "INSERT INTO vehiculos (id, placa, placa_codigo, parqueadero_id, fecha_ingreso, fecha_salida, activo) " +
+                    "VALUES (?, ?, ?, ?, ?, NULL, TRUE)";
+
+    private static final String INSERT_HISTORIAL =
+            "INSERT INTO vehiculos_historial (placa, placa_codigo, parqueadero_id, fecha_ingreso, fecha_salida, " +
+                    "costo, tarifa_por_hora, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ACUMULAR_ESTADISTICAS = PlacaParqueaderoStatsRepository.INSERT_SQL +
+            "VALUES (?, ?, 1, ?, ?, ?, ?) " + PlacaParqueaderoStatsRepository.CONFLICTO_SQL;
+
+    private static final String MOVER_A_HISTORIAL =
+            VehiculoRepository.SALIDA_CTE_SQL + VehiculoRepository.INSERT_HISTORIAL_DESDE_COBRO_SQL;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public record Salida(long placaCodigo, long parqueaderoId, LocalDateTime fechaSalida, BigDecimal tarifaPorHora) {
+    }
+
+    // Devuelve los IDs generados en el mismo orden de la lista recibida
+    public List<Long> insertarVehiculos(List<Vehiculo> vehiculos) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_VEHICULO, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Vehiculo vehiculo = vehiculos.get(i);
+                        ps.setString(1, vehiculo.getPlaca());
+                        ps.setLong(2, vehiculo.getPlacaCodigo());
+                        ps.setLong(3, vehiculo.getParqueadero().getId());
+                        ps.setTimestamp(4, Timestamp.valueOf(vehiculo.getFechaIngreso()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return vehiculos.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(vehiculos.size());
+        for (Map<String, Object> claves : keyHolder.getKeyList()) {
+            ids.add(((Number) claves.get("id")).longValue());
+        }
+        return ids;
+    }
+
+    // Inserta vehículos cuyo ID ya fue reservado de la secuencia (ver reservarIdsVehiculo)
+    public void insertarVehiculosConId(List<Vehiculo> vehiculos) {
+        jdbcTemplate.batchUpdate(INSERT_VEHICULO_CON_ID, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Vehiculo vehiculo = vehiculos.get(i);
+                ps.setLong(1, vehiculo.getId());
+                ps.setString(2, vehiculo.getPlaca());
+                ps.setLong(3, vehiculo.getPlacaCodigo());
+                ps.setLong(4, vehiculo.getParqueadero().getId());
+                ps.setTimestamp(5, Timestamp.valueOf(vehiculo.getFechaIngreso()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return vehiculos.size();
+            }
+        });
+    }
+
+    // IDs de vehiculos tomados de la secuencia de la columna, para asignarlos antes de insertar
+    public List<Long> reservarIdsVehiculo(int cantidad) {
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('vehiculos', 'id')) FROM generate_series(1, ?)",
+                Long.class, cantidad);
+    }
+
+    // Misma sentencia de VehiculoRepository.moverAHistorial, sin RETURNING para poder enviarla en batch
+    public void moverAHistorial(List<Salida> salidas) {
+        SqlParameterSource[] parametros = new SqlParameterSource[salidas.size()];
+        for (int i = 0; i < salidas.size(); i++) {
+            Salida salida = salidas.get(i);
+            parametros[i] = new MapSqlParameterSource()
+                    .addValue("placaCodigo", salida.placaCodigo())
+                    .addValue("parqueaderoId", salida.parqueaderoId())
+                    .addValue("fechaSalida", salida.fechaSalida())
+                    .addValue("tarifaPorHora", salida.tarifaPorHora());
+        }
+        namedParameterJdbcTemplate.batchUpdate(MOVER_A_HISTORIAL, parametros);
+    }
+
+    public void insertarHistorial(List<VehiculoHistorial> registros) {
+        Timestamp creado = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_HISTORIAL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                VehiculoHistorial registro = registros.get(i);
+                ps.setString(1, registro.getPlaca());
+                ps.setLong(2, registro.getPlacaCodigo());
+                ps.setLong(3, registro.getParqueadero().getId());
+                ps.setTimestamp(4, Timestamp.valueOf(registro.getFechaIngreso()));
+                ps.setTimestamp(5, Timestamp.valueOf(registro.getFechaSalida()));
+                ps.setBigDecimal(6, registro.getCosto());
+                ps.setBigDecimal(7, registro.getTarifaPorHora());
+                ps.setTimestamp(8, creado);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return registros.size();
+            }
+        });
+    }
+
+    // Cada placa aparece una sola vez por lote, así que las filas del batch no chocan entre sí
+    public void acumularEstadisticas(List<VehiculoHistorial> registros) {
+        jdbcTemplate.batchUpdate(ACUMULAR_ESTADISTICAS, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                VehiculoHistorial registro = registros.get(i);
+                ps.setLong(1, registro.getParqueadero().getId());
+                ps.setString(2, registro.getPlaca());
+                ps.setTimestamp(3, Timestamp.valueOf(registro.getFechaIngreso()));
+                ps.setTimestamp(4, Timestamp.valueOf(registro.getFechaSalida()));
+                ps.setLong(5, Duration.between(registro.getFechaIngreso(), registro.getFechaSalida()).toMinutes());
+                ps.setBigDecimal(6, registro.getCosto());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return registros.size();
+            }
+        });
+    }
+}
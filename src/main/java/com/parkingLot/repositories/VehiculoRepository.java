@@ -1,13 +1,22 @@
 package com.parkingLot.repositories;
 
+import com.parkingLot.dto.VehiculoPrimeraVezResponse;
 import com.parkingLot.entities.Vehiculo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
@@ -15,18 +24,87 @@ public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
     @Query("SELECT v FROM Vehiculo v WHERE v.placa = :placa AND v.fechaSalida IS NULL AND v.activo = true")
     Optional<Vehiculo> findByPlacaAndFechaSalidaIsNull(@Param("placa") String placa);
 
-    boolean existsByPlacaAndFechaSalidaIsNullAndActivoTrue(String placa);
+    // Salida completa en un solo viaje a la base de datos: borra el vehículo activo, calcula el cobro en SQL
+    // y acumula estadísticas por placa y ganancias del día. La completa el INSERT en el historial: aquí como CTE
+    // con RETURNING y en VehiculoLoteRepository.moverAHistorial como sentencia principal de un batch.
+    String SALIDA_CTE_SQL = "WITH movido AS (" +
+            "DELETE FROM vehiculos v " +
+            "WHERE v.placa_codigo = :placaCodigo AND v.parqueadero_id = :parqueaderoId " +
+            "AND v.fecha_salida IS NULL AND v.activo = true " +
+            "RETURNING v.placa, v.placa_codigo, v.parqueadero_id, v.fecha_ingreso, " +
+            "CAST(:fechaSalida AS TIMESTAMP) AS fecha_salida" +
+            "), cobro AS (" +
+            "SELECT vh.*, " + VehiculoHistorialRepository.MINUTOS_ESTADIA_SQL + " AS minutos, " +
+            "ROUND(CAST(:tarifaPorHora AS NUMERIC) * " + VehiculoHistorialRepository.CENTESIMAS_HORA_SQL +
+            " / 100, 2) AS costo " +
+            "FROM movido vh" +
+            "), estadisticas AS (" +
+            PlacaParqueaderoStatsRepository.INSERT_SQL +
+            "SELECT c.parqueadero_id, c.placa, 1, c.fecha_ingreso, c.fecha_salida, c.minutos, c.costo FROM cobro c " +
+            PlacaParqueaderoStatsRepository.CONFLICTO_SQL +
+            "), ganancias AS (" +
+            GananciaDiariaRepository.INSERT_SQL +
+            "SELECT c.parqueadero_id, CAST(c.fecha_salida AS DATE), c.costo, 1 FROM cobro c " +
+            GananciaDiariaRepository.CONFLICTO_SQL +
+            ") ";
 
-    @Query("SELECT v FROM Vehiculo v WHERE v.placa = :placa AND v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true")
-    Optional<Vehiculo> findByPlacaAndParqueaderoIdAndFechaSalidaIsNull(@Param("placa") String placa,
-            @Param("parqueaderoId") Long parqueaderoId);
+    String INSERT_HISTORIAL_DESDE_COBRO_SQL = "INSERT INTO vehiculos_historial (placa, placa_codigo, parqueadero_id, " +
+            "fecha_ingreso, fecha_salida, costo, tarifa_por_hora, created_at) " +
+            "SELECT c.placa, c.placa_codigo, c.parqueadero_id, c.fecha_ingreso, c.fecha_salida, " +
+            "c.costo, :tarifaPorHora, c.fecha_salida FROM cobro c ";
 
-    @Query("SELECT v FROM Vehiculo v WHERE v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true ORDER BY v.fechaIngreso DESC")
-    List<Vehiculo> findAllByParqueaderoIdAndFechaSalidaIsNull(@Param("parqueaderoId") Long parqueaderoId);
+    // Devuelve (id del historial, costo), o ninguna fila si la placa no está en el parqueadero
+    @Query(value = SALIDA_CTE_SQL + ", historial AS (" +
+            INSERT_HISTORIAL_DESDE_COBRO_SQL + "RETURNING id, costo) " +
+            "SELECT h.id, h.costo FROM historial h",
+            nativeQuery = true)
+    List<Object[]> moverAHistorial(@Param("placaCodigo") Long placaCodigo,
+            @Param("parqueaderoId") Long parqueaderoId,
+            @Param("fechaSalida") LocalDateTime fechaSalida,
+            @Param("tarifaPorHora") BigDecimal tarifaPorHora);
+
+    // Proyecciones (id, placa, fechaIngreso) sin hidratar entidades, en orden de keyset (fechaIngreso, id) descendente
+    @Query("SELECT v.id, v.placa, v.fechaIngreso FROM Vehiculo v " +
+            "WHERE v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true " +
+            "ORDER BY v.fechaIngreso DESC, v.id DESC")
+    List<Object[]> findActivosByParqueaderoId(@Param("parqueaderoId") Long parqueaderoId, Limit limit);
+
+    @Query("SELECT v.id, v.placa, v.fechaIngreso FROM Vehiculo v " +
+            "WHERE v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true " +
+            "AND (v.fechaIngreso < :fechaIngreso OR (v.fechaIngreso = :fechaIngreso AND v.id < :id)) " +
+            "ORDER BY v.fechaIngreso DESC, v.id DESC")
+    List<Object[]> findActivosByParqueaderoIdAntesDe(@Param("parqueaderoId") Long parqueaderoId,
+            @Param("fechaIngreso") LocalDateTime fechaIngreso,
+            @Param("id") Long id,
+            Limit limit);
+
+    // Debe consumirse dentro de una transacción; el driver lee las filas por bloques
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT v.id, v.placa, v.fechaIngreso FROM Vehiculo v " +
+            "WHERE v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true " +
+            "ORDER BY v.fechaIngreso DESC, v.id DESC")
+    Stream<Object[]> streamActivosByParqueaderoId(@Param("parqueaderoId") Long parqueaderoId);
+
+    @Query("SELECT new com.parkingLot.dto.VehiculoPrimeraVezResponse(v.id, v.placa, v.fechaIngreso, true) " +
+            "FROM Vehiculo v WHERE v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true " +
+            "AND NOT EXISTS (SELECT 1 FROM PlacaParqueaderoStats s " +
+            "WHERE s.parqueaderoId = :parqueaderoId AND s.placa = v.placa) " +
+            "ORDER BY v.fechaIngreso DESC")
+    List<VehiculoPrimeraVezResponse> findPrimeraVezByParqueaderoId(@Param("parqueaderoId") Long parqueaderoId);
 
     @Query("SELECT COUNT(v) FROM Vehiculo v WHERE v.parqueadero.id = :parqueaderoId AND v.fechaSalida IS NULL AND v.activo = true")
     long countByParqueaderoIdAndFechaSalidaIsNull(@Param("parqueaderoId") Long parqueaderoId);
 
-    @Query("SELECT v FROM Vehiculo v WHERE UPPER(v.placa) LIKE UPPER(CONCAT('%', :searchTerm, '%')) AND v.fechaSalida IS NULL AND v.activo = true ORDER BY v.fechaIngreso DESC")
-    List<Vehiculo> findByPlacaContainingIgnoreCaseAndFechaSalidaIsNull(@Param("searchTerm") String searchTerm);
+    @Query("SELECT v.parqueadero.id, COUNT(v) FROM Vehiculo v WHERE v.fechaSalida IS NULL AND v.activo = true GROUP BY v.parqueadero.id")
+    List<Object[]> countVehiculosActivosAgrupadosPorParqueadero();
+
+    @Query("SELECT v.id, v.placa, v.parqueadero.id, v.fechaIngreso FROM Vehiculo v WHERE v.fechaSalida IS NULL AND v.activo = true")
+    List<Object[]> findUbicacionesActivas();
+
+    @Query("SELECT v.id, v.placa FROM Vehiculo v WHERE v.placaCodigo IS NULL AND v.id > :desdeId ORDER BY v.id")
+    List<Object[]> findPlacasSinCodificar(@Param("desdeId") Long desdeId, Limit limite);
+
+    @Modifying
+    @Query("UPDATE Vehiculo v SET v.placaCodigo = :placaCodigo WHERE v.id = :id")
+    int actualizarPlacaCodigo(@Param("id") Long id, @Param("placaCodigo") Long placaCodigo);
 }
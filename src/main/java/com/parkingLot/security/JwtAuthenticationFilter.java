@@ -1,26 +1,30 @@
 package com.parkingLot.security;
 
-import com.parkingLot.services.CustomUserDetailsService;
+import com.parkingLot.services.EstadoUsuariosService;
+import com.parkingLot.services.RevocacionTokensService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final EstadoUsuariosService estadoUsuariosService;
+    private final RevocacionTokensService revocacionTokensService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -28,27 +32,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
+        final String jwt = authHeader.substring(7);
 
         try {
-            userEmail = jwtUtil.extractUsername(jwt);
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                Optional<JwtUtil.TokenValido> token = jwtUtil.validar(jwt);
 
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                // El rol viaja firmado en el token; solo se consulta en memoria si el usuario sigue activo
+                // y si el token no fue revocado por un logout
+                if (token.isPresent()
+                        && !revocacionTokensService.estaRevocado(token.get().jti())
+                        && estadoUsuariosService.esTokenVigente(token.get().email(), token.get().tokenVersion())) {
+                    // El token validado se conserva como credencial para poder revocarlo en el logout
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
+                            token.get().email(),
+                            token.get(),
+                            List.of(new SimpleGrantedAuthority("ROLE_" + token.get().role()))
                     );
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
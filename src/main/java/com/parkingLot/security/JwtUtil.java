@@ -1,18 +1,25 @@
 package com.parkingLot.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -23,55 +30,110 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    @Value("${parking.seguridad.cache-tokens.tamano-maximo:10000}")
+    private long tamanoCacheTokens;
+
+    private SecretKey signKey;
+    private JwtParser parser;
+
+    // Tokens ya verificados; cada entrada expira junto con el token para no repetir la verificación HMAC
+    private Cache<String, TokenValido> tokensVerificados;
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public record TokenValido(UUID jti, String email, String role, int tokenVersion, long expiracionMillis) {
+
+        public boolean vigente() {
+            return expiracionMillis > System.currentTimeMillis();
+        }
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    @PostConstruct
+    public void inicializar() {
+        signKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        parser = Jwts.parser().verifyWith(signKey).build();
+        tokensVerificados = Caffeine.newBuilder()
+                .maximumSize(tamanoCacheTokens)
+                .expireAfter(new Expiry<String, TokenValido>() {
+                    @Override
+                    public long expireAfterCreate(String token, TokenValido valido, long currentTime) {
+                        long restante = valido.expiracionMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(restante, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, TokenValido valido, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, TokenValido valido, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    // Verifica firma y expiración con un único parseo; vacío si el token no es válido
+    public Optional<TokenValido> validar(String token) {
+        TokenValido enCache = tokensVerificados.getIfPresent(token);
+        if (enCache != null) {
+            return enCache.vigente() ? Optional.of(enCache) : Optional.empty();
+        }
+
+        Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        Integer tokenVersion = claims.get("ver", Integer.class);
+        TokenValido valido = new TokenValido(
+                jtiDe(claims),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                tokenVersion != null ? tokenVersion : 0,
+                claims.getExpiration().getTime());
+
+        if (valido.email() == null || valido.role() == null) {
+            return Optional.empty();
+        }
+
+        tokensVerificados.put(token, valido);
+        return Optional.of(valido);
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Los tokens emitidos antes de incluir el jti no pueden revocarse individualmente
+    private UUID jtiDe(Claims claims) {
+        try {
+            return claims.getId() != null ? UUID.fromString(claims.getId()) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    private Claims extractAllClaims(String token) {
+        return parser
+                .parseSignedClaims(token)
+                .getPayload();
     }
 
-    public String generateToken(String username, String role) {
+    public String generateToken(String username, String role, int tokenVersion) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
+        claims.put("ver", tokenVersion);
         return createToken(claims, username);
     }
 
     private String createToken(Map<String, Object> claims, String username) {
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignKey())
+                .signWith(signKey)
                 .compact();
     }
-
-    private SecretKey getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
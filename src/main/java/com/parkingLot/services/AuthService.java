@@ -10,14 +10,14 @@ import com.parkingLot.repositories.RoleRepository;
 import com.parkingLot.repositories.UserRepository;
 import com.parkingLot.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class AuthService {
@@ -26,10 +26,12 @@ public class AuthService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
-    private final AuthenticationManager authenticationManager;
+    private final EstadoUsuariosService estadoUsuariosService;
+    private final RevocacionTokensService revocacionTokensService;
+    private final VerificadorContrasenasService verificadorContrasenasService;
 
-    @Transactional
-    public AuthResponse login(LoginRequest request) {
+    // La contraseña se verifica en el pool de BCrypt; el hilo de la petición queda libre mientras tanto
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new BadRequestException("Email o contraseña incorrectos"));
 
@@ -37,20 +39,22 @@ public class AuthService {
             throw new BadRequestException("El usuario está inactivo");
         }
 
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()));
-
-        String token = jwtUtil.generateToken(user.getEmail(), user.getRole().getNombre());
-
-        return AuthResponse.builder()
-                .token(token)
-                .email(user.getEmail())
-                .nombre(user.getNombre())
-                .role(user.getRole().getNombre())
-                .message("Login exitoso")
-                .build();
+        return verificadorContrasenasService.verificar(request.getPassword(), user.getPassword())
+                .thenApply(coincide -> {
+                    if (!coincide) {
+                        throw new BadRequestException("Email o contraseña incorrectos");
+                    }
+
+                    String token = jwtUtil.generateToken(user.getEmail(), user.getRole().getNombre(), user.getTokenVersion());
+
+                    return AuthResponse.builder()
+                            .token(token)
+                            .email(user.getEmail())
+                            .nombre(user.getNombre())
+                            .role(user.getRole().getNombre())
+                            .message("Login exitoso")
+                            .build();
+                });
     }
 
     @Transactional
@@ -83,8 +87,9 @@ public class AuthService {
                 .build();
 
         userRepository.save(newUser);
+        estadoUsuariosService.actualizar(newUser);
 
-        String token = jwtUtil.generateToken(newUser.getEmail(), newUser.getRole().getNombre());
+        String token = jwtUtil.generateToken(newUser.getEmail(), newUser.getRole().getNombre(), newUser.getTokenVersion());
 
         return AuthResponse.builder()
                 .token(token)
@@ -102,6 +107,10 @@ public class AuthService {
             throw new BadRequestException("No hay una sesión activa");
         }
 
+        if (authentication.getCredentials() instanceof JwtUtil.TokenValido token) {
+            revocacionTokensService.revocar(token.jti(), token.expiracionMillis());
+        }
+
         SecurityContextHolder.clearContext();
 
         return AuthResponse.builder()
@@ -0,0 +1,398 @@
+package com.parkingLot.services;
+
+import com.parkingLot.entities.Parqueadero;
+import com.parkingLot.entities.Vehiculo;
+import com.parkingLot.exceptions.ServicioSaturadoException;
+import com.parkingLot.repositories.VehiculoLoteRepository;
+import com.parkingLot.utils.DiarioEventos;
+import com.parkingLot.utils.PlacaCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Modo diario de la puerta (opcional, parking.diario.habilitado): ingresos y salidas se validan contra el estado
+// en memoria, se anexan a un diario local con group commit y se confirman sin esperar el commit de Postgres.
+// Un aplicador en segundo plano los lleva por lotes a vehiculos y vehiculos_historial y guarda la última secuencia
+// aplicada en la misma transacción; al reiniciar se reproduce todo lo posterior antes de atender tráfico.
+// Las consultas sobre esas tablas ven los eventos con el retraso del aplicador (parking.diario.aplicacion-ms).
+// Un evento que la base de datos rechaza se guarda en diario_puerta_descartado y el aplicador sigue con el resto;
+// si el retraso supera parking.diario.retraso-maximo la puerta deja de aceptar eventos hasta que el aplicador alcance.
+@Service
+@ConditionalOnProperty(name = "parking.diario.habilitado", havingValue = "true")
+@Slf4j
+public class DiarioPuertaService {
+
+    private final VehiculoLoteRepository vehiculoLoteRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlacasActivasService placasActivasService;
+    private final OcupacionService ocupacionService;
+    private final FrecuenciaVehiculosService frecuenciaVehiculosService;
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final int tamanoLote;
+    private final int bloqueIds;
+    private final long aplicacionMs;
+    private final long retrasoMaximo;
+    private final MeterRegistry meterRegistry;
+
+    // Hilo propio: el planificador por defecto tiene uno solo, compartido con el archivado y el flujo de ocupación
+    private final ScheduledExecutorService aplicador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "diario-puerta-aplicador");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final ConcurrentLinkedQueue<Long> idsReservados = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock reservaIds = new ReentrantLock();
+
+    // Serializa al aplicador programado con los vaciados pedidos por las operaciones por lotes
+    private final ReentrantLock aplicacion = new ReentrantLock();
+    private volatile long ultimaAplicada;
+    // Aplicada por un vaciado dentro de una transacción que aún no termina; se protege con aplicacion
+    private long aplicadaSinConfirmar;
+
+    private DiarioEventos diario;
+
+    public DiarioPuertaService(VehiculoLoteRepository vehiculoLoteRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               PlacasActivasService placasActivasService,
+                               OcupacionService ocupacionService,
+                               FrecuenciaVehiculosService frecuenciaVehiculosService,
+                               MeterRegistry meterRegistry,
+                               // Solo fija el orden de arranque: el historial se particiona antes de reproducir salidas
+                               Optional<ParticionesHistorialService> particionesHistorialService,
+                               @Value("${parking.diario.directorio:diario-puerta}") String directorio,
+                               @Value("${parking.diario.tamano-segmento-mb:64}") int tamanoSegmentoMb,
+                               @Value("${parking.diario.lote:1000}") int tamanoLote,
+                               @Value("${parking.diario.bloque-ids:1000}") int bloqueIds,
+                               @Value("${parking.diario.aplicacion-ms:200}") long aplicacionMs,
+                               @Value("${parking.diario.retraso-maximo:100000}") long retrasoMaximo) {
+        this.vehiculoLoteRepository = vehiculoLoteRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Solo lo usa el aplicador, fuera de cualquier transacción; el vaciado de las operaciones por lotes
+        // aplica en la transacción del lote
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.placasActivasService = placasActivasService;
+        this.ocupacionService = ocupacionService;
+        this.frecuenciaVehiculosService = frecuenciaVehiculosService;
+        this.directorio = Path.of(directorio);
+        this.tamanoSegmento = tamanoSegmentoMb * 1024 * 1024;
+        this.tamanoLote = tamanoLote;
+        this.bloqueIds = bloqueIds;
+        this.aplicacionMs = aplicacionMs;
+        this.retrasoMaximo = retrasoMaximo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Los servicios en memoria ya se inicializaron desde la base de datos (son dependencias de este bean);
+    // tras reproducir el diario se corrigen con lo que faltaba por aplicar
+    @PostConstruct
+    public void inicializar() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS diario_puerta_aplicado " +
+                "(id SMALLINT PRIMARY KEY, secuencia BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO diario_puerta_aplicado (id, secuencia) VALUES (1, 0) ON CONFLICT (id) DO NOTHING");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS diario_puerta_descartado (" +
+                "secuencia BIGINT PRIMARY KEY, tipo VARCHAR(10) NOT NULL, vehiculo_id BIGINT NOT NULL, " +
+                "placa VARCHAR(10) NOT NULL, parqueadero_id BIGINT NOT NULL, fecha TIMESTAMP NOT NULL, " +
+                "tarifa_por_hora NUMERIC, error TEXT NOT NULL, descartado_en TIMESTAMP NOT NULL DEFAULT now())");
+        ultimaAplicada = jdbcTemplate.queryForObject("SELECT secuencia FROM diario_puerta_aplicado WHERE id = 1", Long.class);
+
+        diario = DiarioEventos.abrir(directorio, tamanoSegmento, ultimaAplicada);
+
+        // Los eventos rechazados se descartan uno a uno, así que solo una falla de conexión detiene el arranque
+        long desde = ultimaAplicada;
+        List<DiarioEventos.Evento> aplicados = new ArrayList<>();
+        while (aplicarLote(aplicados) > 0) {
+            for (DiarioEventos.Evento evento : aplicados) {
+                if (evento.tipo() == DiarioEventos.Tipo.SALIDA) {
+                    frecuenciaVehiculosService.registrarSalida(evento.parqueaderoId(), evento.placaCodigo());
+                }
+            }
+            aplicados.clear();
+        }
+
+        if (ultimaAplicada > desde) {
+            placasActivasService.recargar();
+            ocupacionService.reconciliar();
+            log.info("Diario de la puerta reproducido: {} eventos aplicados ({} a {})",
+                    ultimaAplicada - desde, desde + 1, ultimaAplicada);
+        }
+        Gauge.builder("parking.diario.retraso", this, DiarioPuertaService::retraso)
+                .description("Eventos confirmados en el diario que aún no llegan a la base de datos")
+                .register(meterRegistry);
+        aplicador.scheduleWithFixedDelay(this::aplicarPendientes, aplicacionMs, aplicacionMs, TimeUnit.MILLISECONDS);
+        log.info("Diario de la puerta abierto en {} (última secuencia aplicada: {})", directorio, ultimaAplicada);
+    }
+
+    // Anexa el ingreso y espera a que esté en disco; devuelve el ID que tendrá el vehículo al aplicarse
+    public Long registrarIngreso(long placaCodigo, Long parqueaderoId, LocalDateTime fechaIngreso) {
+        verificarRetraso();
+        long vehiculoId = siguienteIdVehiculo();
+        long secuencia = diario.anexar(DiarioEventos.Tipo.INGRESO, vehiculoId, placaCodigo, parqueaderoId,
+                fechaIngreso, null);
+        diario.esperarPersistencia(secuencia);
+        return vehiculoId;
+    }
+
+    // La salida se anexa dentro del retiro atómico de la placa en memoria, así el orden del diario coincide
+    // con el orden en que un nuevo ingreso de la misma placa puede reservarla
+    public Optional<PlacasActivasService.UbicacionVehiculo> registrarSalida(long placaCodigo, Long parqueaderoId,
+                                                                            LocalDateTime fechaSalida,
+                                                                            BigDecimal tarifaPorHora) {
+        verificarRetraso();
+        long[] secuencia = new long[1];
+        Optional<PlacasActivasService.UbicacionVehiculo> ubicacion = placasActivasService.reservarSalida(
+                placaCodigo, parqueaderoId, retirada -> secuencia[0] = diario.anexar(DiarioEventos.Tipo.SALIDA,
+                        retirada.vehiculoId(), placaCodigo, parqueaderoId, fechaSalida, tarifaPorHora));
+
+        ubicacion.ifPresent(retirada -> diario.esperarPersistencia(secuencia[0]));
+        return ubicacion;
+    }
+
+    // Lleva a la base de datos todo lo confirmado hasta ahora; si la base de datos no responde propaga la falla.
+    // Dentro de una transacción aplica en ella, sin tomar otra conexión del pool (ver vaciarEnTransaccion)
+    public void vaciar() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            vaciarEnTransaccion();
+            return;
+        }
+        while (aplicarLote(new ArrayList<>()) == tamanoLote) {
+            // Sigue mientras haya lotes completos
+        }
+    }
+
+    // Eventos persistidos en el diario que el aplicador todavía no lleva a la base de datos
+    public long retraso() {
+        return Math.max(0, diario.ultimaPersistida() - ultimaAplicada);
+    }
+
+    @PreDestroy
+    public void cerrar() throws InterruptedException {
+        aplicador.shutdown();
+        aplicador.awaitTermination(10, TimeUnit.SECONDS);
+        aplicarPendientes();
+        diario.close();
+        log.info("Diario de la puerta cerrado (última secuencia aplicada: {})", ultimaAplicada);
+    }
+
+    // Una excepción que escape cancela las ejecuciones siguientes del ScheduledExecutorService
+    private void aplicarPendientes() {
+        try {
+            vaciar();
+        } catch (RuntimeException e) {
+            log.error("No se pudo aplicar el diario de la puerta desde la secuencia {}; se reintentará",
+                    ultimaAplicada + 1, e);
+        }
+    }
+
+    private void verificarRetraso() {
+        long retraso = retraso();
+        if (retraso > retrasoMaximo) {
+            log.warn("Evento de la puerta rechazado: el aplicador del diario lleva {} eventos de retraso", retraso);
+            throw new ServicioSaturadoException(
+                    "La portería tiene eventos pendientes de guardar, intente de nuevo en unos segundos");
+        }
+    }
+
+    // Aplica hasta tamanoLote eventos y devuelve cuántos leyó del diario; agrega a aplicados los que llegaron
+    // a la base de datos. Si el lote falla se reintenta evento por evento para aislar al que la base de datos
+    // rechaza, que se descarta; una falla de conexión se propaga y el lote se repite completo la próxima vez.
+    private int aplicarLote(List<DiarioEventos.Evento> aplicados) {
+        aplicacion.lock();
+        try {
+            List<DiarioEventos.Evento> lote = diario.leer(ultimaAplicada, tamanoLote);
+            if (lote.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                aplicarEnTransaccion(lote);
+                aplicados.addAll(lote);
+            } catch (DataAccessException e) {
+                if (esReintentable(e)) {
+                    throw e;
+                }
+                log.warn("El lote del diario desde la secuencia {} falló; se aplica evento por evento",
+                        lote.get(0).secuencia(), e);
+                for (DiarioEventos.Evento evento : lote) {
+                    try {
+                        aplicarEnTransaccion(List.of(evento));
+                        aplicados.add(evento);
+                    } catch (DataAccessException errorEvento) {
+                        if (esReintentable(errorEvento)) {
+                            throw errorEvento;
+                        }
+                        descartar(evento, errorEvento);
+                    }
+                }
+            }
+
+            diario.descartarHasta(ultimaAplicada);
+            return lote.size();
+        } finally {
+            aplicacion.unlock();
+        }
+    }
+
+    // Los eventos y la secuencia aplicada se confirman junto con la transacción del lote; el aplicador queda
+    // detenido hasta que termine para no repetirlos. Un evento que la base de datos rechaza hace fallar el lote
+    // y el aplicador lo aísla y lo descarta en su siguiente pasada.
+    private void vaciarEnTransaccion() {
+        aplicacion.lock();
+        long ultima;
+        try {
+            long desde = Math.max(ultimaAplicada, aplicadaSinConfirmar);
+            ultima = desde;
+            List<DiarioEventos.Evento> lote;
+            while (!(lote = diario.leer(ultima, tamanoLote)).isEmpty()) {
+                aplicarEnOrden(lote);
+                ultima = lote.get(lote.size() - 1).secuencia();
+            }
+            if (ultima == desde) {
+                aplicacion.unlock();
+                return;
+            }
+            jdbcTemplate.update("UPDATE diario_puerta_aplicado SET secuencia = ? WHERE id = 1", ultima);
+            aplicadaSinConfirmar = ultima;
+        } catch (RuntimeException e) {
+            aplicacion.unlock();
+            throw e;
+        }
+
+        long aplicada = ultima;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        ultimaAplicada = Math.max(ultimaAplicada, aplicada);
+                        diario.descartarHasta(ultimaAplicada);
+                    }
+                } finally {
+                    aplicadaSinConfirmar = 0;
+                    aplicacion.unlock();
+                }
+            }
+        });
+    }
+
+    private void aplicarEnTransaccion(List<DiarioEventos.Evento> eventos) {
+        long ultima = eventos.get(eventos.size() - 1).secuencia();
+        transactionTemplate.executeWithoutResult(status -> {
+            aplicarEnOrden(eventos);
+            jdbcTemplate.update("UPDATE diario_puerta_aplicado SET secuencia = ? WHERE id = 1", ultima);
+        });
+        ultimaAplicada = ultima;
+    }
+
+    // Guarda el evento rechazado para revisarlo a mano y avanza la secuencia aplicada más allá de él
+    private void descartar(DiarioEventos.Evento evento, DataAccessException error) {
+        log.error("Evento {} del diario de la puerta descartado ({} de la placa {} en el parqueadero ID: {})",
+                evento.secuencia(), evento.tipo(), PlacaCodec.decodificar(evento.placaCodigo()),
+                evento.parqueaderoId(), error);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO diario_puerta_descartado " +
+                            "(secuencia, tipo, vehiculo_id, placa, parqueadero_id, fecha, tarifa_por_hora, error) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (secuencia) DO NOTHING",
+                    evento.secuencia(), evento.tipo().name(), evento.vehiculoId(),
+                    PlacaCodec.decodificar(evento.placaCodigo()), evento.parqueaderoId(), evento.fecha(),
+                    evento.tarifaPorHora(), String.valueOf(error.getMostSpecificCause().getMessage()));
+            jdbcTemplate.update("UPDATE diario_puerta_aplicado SET secuencia = ? WHERE id = 1", evento.secuencia());
+        });
+        ultimaAplicada = evento.secuencia();
+    }
+
+    // Fallas de conexión, timeouts o bloqueos: el evento no tiene la culpa y no debe descartarse
+    private static boolean esReintentable(DataAccessException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof NonTransientDataAccessResourceException;
+    }
+
+    // Agrupa los eventos consecutivos del mismo tipo en un batch, respetando el orden del diario
+    private void aplicarEnOrden(List<DiarioEventos.Evento> lote) {
+        int inicio = 0;
+        while (inicio < lote.size()) {
+            DiarioEventos.Tipo tipo = lote.get(inicio).tipo();
+            int fin = inicio;
+            while (fin < lote.size() && lote.get(fin).tipo() == tipo) {
+                fin++;
+            }
+
+            List<DiarioEventos.Evento> tramo = lote.subList(inicio, fin);
+            if (tipo == DiarioEventos.Tipo.INGRESO) {
+                vehiculoLoteRepository.insertarVehiculosConId(aVehiculos(tramo));
+            } else {
+                vehiculoLoteRepository.moverAHistorial(aSalidas(tramo));
+            }
+            inicio = fin;
+        }
+    }
+
+    private static List<Vehiculo> aVehiculos(List<DiarioEventos.Evento> ingresos) {
+        List<Vehiculo> vehiculos = new ArrayList<>(ingresos.size());
+        for (DiarioEventos.Evento ingreso : ingresos) {
+            vehiculos.add(Vehiculo.builder()
+                    .id(ingreso.vehiculoId())
+                    .placa(PlacaCodec.decodificar(ingreso.placaCodigo()))
+                    .placaCodigo(ingreso.placaCodigo())
+                    .parqueadero(Parqueadero.builder().id(ingreso.parqueaderoId()).build())
+                    .fechaIngreso(ingreso.fecha())
+                    .build());
+        }
+        return vehiculos;
+    }
+
+    private static List<VehiculoLoteRepository.Salida> aSalidas(List<DiarioEventos.Evento> salidas) {
+        List<VehiculoLoteRepository.Salida> resultado = new ArrayList<>(salidas.size());
+        for (DiarioEventos.Evento salida : salidas) {
+            resultado.add(new VehiculoLoteRepository.Salida(
+                    salida.placaCodigo(), salida.parqueaderoId(), salida.fecha(), salida.tarifaPorHora()));
+        }
+        return resultado;
+    }
+
+    private long siguienteIdVehiculo() {
+        Long id;
+        while ((id = idsReservados.poll()) == null) {
+            reservaIds.lock();
+            try {
+                if (idsReservados.isEmpty()) {
+                    idsReservados.addAll(vehiculoLoteRepository.reservarIdsVehiculo(bloqueIds));
+                }
+            } finally {
+                reservaIds.unlock();
+            }
+        }
+        return id;
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkingLot.services;
+
+import com.parkingLot.dto.EstadisticaPlacaResponse;
+import com.parkingLot.entities.PlacaParqueaderoStats;
+import com.parkingLot.entities.VehiculoHistorial;
+import com.parkingLot.repositories.PlacaParqueaderoStatsRepository;
+import com.parkingLot.repositories.VehiculoHistorialRepository;
+import com.parkingLot.repositories.VehiculoLoteRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+// Estadísticas de visitas por placa y parqueadero (placa_parqueadero_stats)
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EstadisticasPlacaService {
+
+    private final PlacaParqueaderoStatsRepository placaParqueaderoStatsRepository;
+    private final VehiculoHistorialRepository vehiculoHistorialRepository;
+    private final VehiculoLoteRepository vehiculoLoteRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    public interface ConsumidorVisitas {
+        void aceptar(long parqueaderoId, String placa, long visitas);
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        // Construye las estadísticas a partir del historial la primera vez que se despliega
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (placaParqueaderoStatsRepository.count() == 0 && vehiculoHistorialRepository.count() > 0) {
+                int filas = placaParqueaderoStatsRepository.reconstruirDesdeHistorial();
+                log.info("Estadísticas por placa reconstruidas desde el historial ({} placas por parqueadero)", filas);
+            }
+        });
+    }
+
+    @Transactional
+    public void registrarLote(List<VehiculoHistorial> registros) {
+        vehiculoLoteRepository.acumularEstadisticas(registros);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<EstadisticaPlacaResponse> obtener(Long parqueaderoId, String placa) {
+        return placaParqueaderoStatsRepository.findByParqueaderoIdAndPlaca(parqueaderoId, placa)
+                .map(this::aRespuesta);
+    }
+
+    // Recorre los conteos de visitas sin cargarlos todos en memoria a la vez
+    public void recorrerVisitas(ConsumidorVisitas consumidor) {
+        jdbcTemplate.query("SELECT parqueadero_id, placa, visitas FROM placa_parqueadero_stats",
+                (RowCallbackHandler) rs -> consumidor.aceptar(rs.getLong(1), rs.getString(2), rs.getLong(3)));
+    }
+
+    private EstadisticaPlacaResponse aRespuesta(PlacaParqueaderoStats stats) {
+        return EstadisticaPlacaResponse.builder()
+                .parqueaderoId(stats.getParqueaderoId())
+                .placa(stats.getPlaca())
+                .visitas(stats.getVisitas())
+                .primeraVisita(stats.getPrimeraVisita())
+                .ultimaVisita(stats.getUltimaVisita())
+                .minutosTotales(stats.getMinutosTotales())
+                .totalCobrado(stats.getTotalCobrado())
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.parkingLot.services;
+
+import com.parkingLot.entities.User;
+import com.parkingLot.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Estado de los usuarios (activo y versión de token) que el filtro JWT consulta sin ir a la base de datos
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EstadoUsuariosService {
+
+    private final UserRepository userRepository;
+
+    private final ConcurrentHashMap<String, EstadoUsuario> estados = new ConcurrentHashMap<>();
+
+    // Cada cambio publicado recibe un sello creciente; una recarga no pisa cambios posteriores a su consulta
+    private final AtomicLong sellos = new AtomicLong();
+
+    private record EstadoUsuario(boolean activo, int tokenVersion, long sello) {
+
+        static EstadoUsuario desconocido(long sello) {
+            return new EstadoUsuario(false, Integer.MAX_VALUE, sello);
+        }
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${parking.seguridad.refresco-usuarios-ms:60000}",
+            initialDelayString = "${parking.seguridad.refresco-usuarios-ms:60000}")
+    public void recargar() {
+        long sello = sellos.get();
+        List<Object[]> usuarios = userRepository.findEstadosDeUsuarios();
+        Set<String> emails = new HashSet<>(usuarios.size() * 2);
+        for (Object[] usuario : usuarios) {
+            String email = (String) usuario[0];
+            emails.add(email);
+            EstadoUsuario leido = new EstadoUsuario((Boolean) usuario[1], (Integer) usuario[2], sello);
+            estados.merge(email, leido, (actual, nuevo) -> actual.sello() > sello ? actual : nuevo);
+        }
+        // Los usuarios borrados desaparecen del mapa; si vuelven a consultarse se cargan como desconocidos
+        estados.entrySet().removeIf(e -> !emails.contains(e.getKey()) && e.getValue().sello() <= sello);
+        log.debug("Estado de {} usuarios cargado en memoria", usuarios.size());
+    }
+
+    // Un token es vigente si el usuario existe, está activo y el token no es de una versión anterior
+    public boolean esTokenVigente(String email, int tokenVersion) {
+        EstadoUsuario estado = estados.get(email);
+        if (estado == null) {
+            // Se consulta fuera del mapa para no bloquear dentro de su lock; una carga repetida es inofensiva
+            EstadoUsuario cargado = cargar(email);
+            estado = Objects.requireNonNullElse(estados.putIfAbsent(email, cargado), cargado);
+        }
+        return estado.activo() && tokenVersion >= estado.tokenVersion();
+    }
+
+    // Publica el nuevo estado del usuario cuando la transacción que lo modifica hace commit
+    public void actualizar(User user) {
+        boolean activo = user.isActive();
+        int tokenVersion = user.getTokenVersion();
+        publicar(user.getEmail(), () -> new EstadoUsuario(activo, tokenVersion, sellos.incrementAndGet()));
+    }
+
+    // Tras borrar un usuario sus tokens dejan de ser vigentes sin esperar a la siguiente recarga
+    public void eliminar(String email) {
+        publicar(email, () -> EstadoUsuario.desconocido(sellos.incrementAndGet()));
+    }
+
+    private void publicar(String email, Supplier<EstadoUsuario> estado) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            estados.put(email, estado.get());
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                estados.put(email, estado.get());
+            }
+        });
+    }
+
+    private EstadoUsuario cargar(String email) {
+        long sello = sellos.get();
+        List<Object[]> resultado = userRepository.findEstadoByEmail(email);
+        if (resultado.isEmpty()) {
+            return EstadoUsuario.desconocido(sello);
+        }
+        Object[] usuario = resultado.get(0);
+        return new EstadoUsuario((Boolean) usuario[1], (Integer) usuario[2], sello);
+    }
+}
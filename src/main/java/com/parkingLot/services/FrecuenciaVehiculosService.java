@@ -0,0 +1,97 @@
+package com.parkingLot.services;
+
+import com.parkingLot.dto.TopVehiculoResponse;
+import com.parkingLot.exceptions.BadRequestException;
+import com.parkingLot.utils.ContadorPlacas;
+import com.parkingLot.utils.PlacaCodec;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Conteo exacto de registros de historial por placa, global y por parqueadero, mantenido en memoria
+// para servir los rankings de vehículos frecuentes sin agrupar vehiculos_historial en cada consulta.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FrecuenciaVehiculosService {
+
+    private final EstadisticasPlacaService estadisticasPlacaService;
+
+    private final ContadorPlacas global = new ContadorPlacas();
+    private final ConcurrentHashMap<Long, ContadorPlacas> porParqueadero = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void inicializar() {
+        AtomicLong registros = new AtomicLong();
+        // Se parte de placa_parqueadero_stats, que ya tiene el conteo por placa y parqueadero
+        estadisticasPlacaService.recorrerVisitas((parqueaderoId, placa, visitas) -> {
+            try {
+                sumar(parqueaderoId, PlacaCodec.codificar(placa), (int) visitas);
+                registros.addAndGet(visitas);
+            } catch (BadRequestException e) {
+                log.warn("Placa '{}' del historial omitida en el conteo de frecuencias", placa);
+            }
+        });
+        log.info("Frecuencias inicializadas: {} registros, {} placas distintas", registros.get(), global.tamano());
+    }
+
+    // Cuenta la salida solo cuando la transacción que la registra hace commit
+    public void registrarSalida(Long parqueaderoId, long placaCodigo) {
+        alConfirmar(() -> sumar(parqueaderoId, placaCodigo, 1));
+    }
+
+    // Descuenta del ranking global todos los registros de un parqueadero eliminado
+    public void eliminarParqueadero(Long parqueaderoId) {
+        alConfirmar(() -> {
+            ContadorPlacas contador = porParqueadero.remove(parqueaderoId);
+            if (contador != null) {
+                contador.entradas().forEach(entrada -> global.sumar(entrada.placaCodigo(), -entrada.cantidad()));
+            }
+        });
+    }
+
+    public List<TopVehiculoResponse> obtenerMasFrecuentes(int n) {
+        return aRespuesta(global.mayores(n));
+    }
+
+    public List<TopVehiculoResponse> obtenerMasFrecuentesPorParqueadero(Long parqueaderoId, int n) {
+        ContadorPlacas contador = porParqueadero.get(parqueaderoId);
+        return contador != null ? aRespuesta(contador.mayores(n)) : List.of();
+    }
+
+    private void sumar(long parqueaderoId, long placaCodigo, int cantidad) {
+        global.sumar(placaCodigo, cantidad);
+        porParqueadero.computeIfAbsent(parqueaderoId, id -> new ContadorPlacas()).sumar(placaCodigo, cantidad);
+    }
+
+    private List<TopVehiculoResponse> aRespuesta(List<ContadorPlacas.Entrada> entradas) {
+        return entradas.stream()
+                .map(entrada -> TopVehiculoResponse.builder()
+                        .placa(PlacaCodec.decodificar(entrada.placaCodigo()))
+                        .cantidadRegistros((long) entrada.cantidad())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.parkingLot.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parkingLot.dto.FiltroHistorialRequest;
+import com.parkingLot.dto.HistorialVehiculoResponse;
+import com.parkingLot.dto.PaginaResponse;
+import com.parkingLot.exceptions.BadRequestException;
+import com.parkingLot.repositories.HistorialBusquedaRepository;
+import com.parkingLot.utils.CursorPaginacion;
+import com.parkingLot.utils.EscritorNdjson;
+import com.parkingLot.utils.PlacaCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistorialVehiculoService {
+
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final int LIMITE_MAXIMO = 500;
+    // La búsqueda por subcadena no puede usar un índice sobre la placa: se acota a un rango de salidas
+    // que recorre el índice por fecha (y solo las particiones de esos meses)
+    private static final long MAXIMO_DIAS_CONTIENE = 31;
+
+    private final HistorialBusquedaRepository historialBusquedaRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final LimiteExportacionesService limiteExportacionesService;
+
+    public PaginaResponse<HistorialVehiculoResponse> buscar(FiltroHistorialRequest request) {
+        int limite = request.getLimite() != null ? request.getLimite() : LIMITE_POR_DEFECTO;
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new BadRequestException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+
+        HistorialBusquedaRepository.Filtro filtro = construirFiltro(request);
+        log.info("Buscando en el historial: {}", request);
+
+        // Se pide un registro extra solo para saber si existe una página siguiente
+        List<HistorialVehiculoResponse> registros = historialBusquedaRepository.buscar(filtro, limite + 1);
+        boolean hayMas = registros.size() > limite;
+        List<HistorialVehiculoResponse> pagina = hayMas ? registros.subList(0, limite) : registros;
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            HistorialVehiculoResponse ultimo = pagina.get(pagina.size() - 1);
+            siguienteCursor = CursorPaginacion.codificar(ultimo.getFechaSalida(), ultimo.getId());
+        }
+
+        return PaginaResponse.<HistorialVehiculoResponse>builder()
+                .items(pagina)
+                .cantidad(pagina.size())
+                .hayMas(hayMas)
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    // Valida los filtros de inmediato y devuelve un cuerpo que escribe los resultados como NDJSON,
+    // leyéndolos por bloques desde la base de datos
+    public StreamingResponseBody exportar(FiltroHistorialRequest request) {
+        HistorialBusquedaRepository.Filtro filtro = construirFiltro(request);
+        return limiteExportacionesService.limitar(salida -> transmitir(filtro, salida));
+    }
+
+    private void transmitir(HistorialBusquedaRepository.Filtro filtro, OutputStream salida) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        Integer total = transactionTemplate.execute(status -> {
+            try (Stream<HistorialVehiculoResponse> registros = historialBusquedaRepository.transmitir(filtro)) {
+                return EscritorNdjson.escribir(registros, salida, objectMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        log.info("Exportación del historial finalizada con {} registros", total);
+    }
+
+    private HistorialBusquedaRepository.Filtro construirFiltro(FiltroHistorialRequest request) {
+        if (request.getDesde() != null && request.getHasta() != null
+                && request.getDesde().isAfter(request.getHasta())) {
+            throw new BadRequestException("La fecha inicial no puede ser posterior a la fecha final");
+        }
+
+        Long placaDesde = null;
+        Long placaHasta = null;
+        String placaContiene = null;
+
+        if (request.getPlaca() != null && !request.getPlaca().isBlank()) {
+            String placa = request.getPlaca().trim().toUpperCase();
+            if (placa.length() > PlacaCodec.LONGITUD_PLACA) {
+                throw new BadRequestException("La placa debe tener como máximo 6 caracteres");
+            }
+
+            String coincidencia = request.getCoincidencia() != null ? request.getCoincidencia().toLowerCase() : "prefijo";
+            switch (coincidencia) {
+                case "prefijo" -> {
+                    // Un prefijo de placa equivale a un rango contiguo de placa_codigo, que usa el índice
+                    long[] rango = PlacaCodec.rangoDePrefijo(placa);
+                    placaDesde = rango[0];
+                    placaHasta = rango[1];
+                }
+                case "contiene" -> {
+                    // Solo para validar los caracteres del fragmento
+                    PlacaCodec.rangoDePrefijo(placa);
+                    validarRangoParaContiene(request);
+                    placaContiene = placa;
+                }
+                default -> throw new BadRequestException(
+                        "Coincidencia no válida: '" + request.getCoincidencia() + "'. Valores permitidos: prefijo, contiene");
+            }
+        }
+
+        CursorPaginacion.Posicion cursor = request.getCursor() != null && !request.getCursor().isBlank()
+                ? CursorPaginacion.decodificar(request.getCursor())
+                : null;
+
+        return new HistorialBusquedaRepository.Filtro(
+                placaDesde,
+                placaHasta,
+                placaContiene,
+                request.getParqueaderoId(),
+                request.getDesde() != null ? request.getDesde().atStartOfDay() : null,
+                request.getHasta() != null ? request.getHasta().plusDays(1).atStartOfDay() : null,
+                cursor != null ? cursor.fecha() : null,
+                cursor != null ? cursor.id() : null);
+    }
+
+    private void validarRangoParaContiene(FiltroHistorialRequest request) {
+        if (request.getDesde() == null || request.getHasta() == null) {
+            throw new BadRequestException("La búsqueda por coincidencia 'contiene' requiere las fechas desde y hasta");
+        }
+        if (ChronoUnit.DAYS.between(request.getDesde(), request.getHasta()) >= MAXIMO_DIAS_CONTIENE) {
+            throw new BadRequestException(
+                    "La búsqueda por coincidencia 'contiene' admite como máximo " + MAXIMO_DIAS_CONTIENE + " días");
+        }
+    }
+}
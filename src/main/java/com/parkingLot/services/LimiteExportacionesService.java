@@ -0,0 +1,109 @@
+package com.parkingLot.services;
+
+import com.parkingLot.exceptions.ServicioSaturadoException;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Las exportaciones NDJSON mantienen una transacción y una conexión del pool durante toda la descarga
+// del cliente; se admiten pocas a la vez para que no dejen sin conexiones a las porterías.
+@Service
+@Slf4j
+public class LimiteExportacionesService {
+
+    private static final String ATRIBUTO_PERMISO = LimiteExportacionesService.class.getName() + ".permiso";
+
+    private final Semaphore permisos;
+    private final int maximo;
+
+    public LimiteExportacionesService(@Value("${parking.exportaciones.maximo:4}") int maximo) {
+        this.permisos = new Semaphore(maximo);
+        this.maximo = maximo;
+    }
+
+    // Toma el permiso al atender la solicitud (si no hay, 503 antes de empezar a responder)
+    // y lo devuelve cuando el cuerpo termina de escribirse, con éxito o con error
+    public StreamingResponseBody limitar(StreamingResponseBody cuerpo) {
+        if (!permisos.tryAcquire()) {
+            log.warn("Exportación rechazada: {} exportaciones en curso", maximo);
+            throw new ServicioSaturadoException(
+                    "Hay demasiadas exportaciones en curso, intente de nuevo en unos segundos");
+        }
+
+        Permiso permiso = new Permiso();
+        atarALaSolicitud(permiso);
+
+        return salida -> {
+            try {
+                cuerpo.writeTo(salida);
+            } finally {
+                permiso.liberar();
+            }
+        };
+    }
+
+    // Si el cuerpo nunca llega a escribirse (error antes de iniciar la respuesta asíncrona, timeout o
+    // desconexión del cliente antes de que corra) el permiso se devuelve al terminar la solicitud
+    private void atarALaSolicitud(Permiso permiso) {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (!(atributos instanceof ServletRequestAttributes servlet)) {
+            return;
+        }
+
+        HttpServletRequest request = servlet.getRequest();
+        atributos.registerDestructionCallback(ATRIBUTO_PERMISO, () -> {
+            if (!request.isAsyncStarted()) {
+                permiso.liberar();
+                return;
+            }
+            try {
+                request.getAsyncContext().addListener(permiso);
+            } catch (IllegalStateException e) {
+                // El ciclo asíncrono ya terminó: el cuerpo corrió y devolvió el permiso
+                permiso.liberar();
+            }
+        }, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    // Tras un error o un timeout el contenedor también notifica onComplete: el permiso se devuelve una sola vez
+    private class Permiso implements AsyncListener {
+
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        void liberar() {
+            if (liberado.compareAndSet(false, true)) {
+                permisos.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.parkingLot.services;
+
+import com.parkingLot.repositories.VehiculoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class OcupacionService {
+
+    private final VehiculoRepository vehiculoRepository;
+    private final boolean diarioHabilitado;
+
+    // Vehículos actualmente dentro de cada parqueadero, indexado por ID de parqueadero
+    private final ConcurrentHashMap<Long, Contador> ocupacion = new ConcurrentHashMap<>();
+
+    private static final long MASCARA_VEHICULOS = 0xFFFFFFFFL;
+
+    // estado empaqueta (versión << 32 | vehículos): toda reserva o liberación cambia la versión, también al
+    // confirmarse su transacción, así la reconciliación solo aplica su conteo si nada cambió mientras consultaba
+    // la base de datos. enCurso cuenta las reservas y liberaciones cuya transacción todavía no termina.
+    private static final class Contador {
+        private final AtomicLong estado;
+        private final AtomicInteger enCurso = new AtomicInteger();
+
+        private Contador(int vehiculos) {
+            this.estado = new AtomicLong(vehiculos);
+        }
+
+        private static int vehiculos(long estado) {
+            return (int) (estado & MASCARA_VEHICULOS);
+        }
+
+        private static long siguiente(long estado, int vehiculos) {
+            return ((estado >>> 32) + 1) << 32 | (vehiculos & MASCARA_VEHICULOS);
+        }
+    }
+
+    public OcupacionService(VehiculoRepository vehiculoRepository,
+                            @Value("${parking.diario.habilitado:false}") boolean diarioHabilitado) {
+        this.vehiculoRepository = vehiculoRepository;
+        this.diarioHabilitado = diarioHabilitado;
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        Map<Long, Integer> conteos = contarOcupacionEnBaseDeDatos();
+        conteos.forEach((parqueaderoId, cantidad) -> ocupacion.put(parqueaderoId, new Contador(cantidad)));
+        log.info("Ocupación inicializada para {} parqueaderos", conteos.size());
+    }
+
+    // Reserva un cupo si el parqueadero no está lleno; si la transacción hace rollback el cupo se libera
+    public boolean reservar(Long parqueaderoId, int capacidadMaxima) {
+        Contador contador = obtenerContador(parqueaderoId);
+        boolean enTransaccion = TransactionSynchronizationManager.isSynchronizationActive();
+        if (enTransaccion) {
+            contador.enCurso.incrementAndGet();
+        }
+
+        long actual;
+        do {
+            actual = contador.estado.get();
+            if (Contador.vehiculos(actual) >= capacidadMaxima) {
+                if (enTransaccion) {
+                    contador.enCurso.decrementAndGet();
+                }
+                return false;
+            }
+        } while (!contador.estado.compareAndSet(actual, Contador.siguiente(actual, Contador.vehiculos(actual) + 1)));
+
+        if (enTransaccion) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // El cambio de versión va antes de bajar enCurso: un commit que la consulta de reconciliación
+                    // no alcanzó a ver invalida su snapshot aunque enCurso ya esté en cero al compararlo
+                    if (status == STATUS_COMMITTED) {
+                        confirmar(contador);
+                    } else {
+                        liberar(contador);
+                    }
+                    contador.enCurso.decrementAndGet();
+                }
+            });
+        }
+        return true;
+    }
+
+    // Libera el cupo solo cuando la transacción que registra la salida hace commit
+    public void liberarAlConfirmar(Long parqueaderoId) {
+        Contador contador = obtenerContador(parqueaderoId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            liberar(contador);
+            return;
+        }
+
+        contador.enCurso.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    liberar(contador);
+                }
+                contador.enCurso.decrementAndGet();
+            }
+        });
+    }
+
+    public int obtenerOcupacion(Long parqueaderoId) {
+        return Contador.vehiculos(obtenerContador(parqueaderoId).estado.get());
+    }
+
+    public void eliminar(Long parqueaderoId) {
+        ocupacion.remove(parqueaderoId);
+    }
+
+    // Con el diario de la puerta la tabla de vehículos va detrás de los contadores por el retraso del aplicador,
+    // así que su conteo desharía eventos ya confirmados; en ese modo solo se reconcilia al reproducir el diario
+    @Scheduled(fixedDelayString = "${parking.ocupacion.reconciliacion-ms:300000}",
+            initialDelayString = "${parking.ocupacion.reconciliacion-ms:300000}")
+    public void reconciliarProgramado() {
+        if (!diarioHabilitado) {
+            reconciliar();
+        }
+    }
+
+    // Corrige cualquier desviación entre los contadores en memoria y la tabla de vehículos.
+    // Un parqueadero con reservas o liberaciones sin terminar, o que cambió durante la consulta, se omite:
+    // su conteo en base de datos no incluye esas operaciones y se corrige en la siguiente pasada.
+    public void reconciliar() {
+        Map<Long, Long> estadosPrevios = new HashMap<>();
+        ocupacion.forEach((parqueaderoId, contador) -> estadosPrevios.put(parqueaderoId, contador.estado.get()));
+
+        Map<Long, Integer> conteos = contarOcupacionEnBaseDeDatos();
+
+        estadosPrevios.forEach((parqueaderoId, previo) -> {
+            Contador contador = ocupacion.get(parqueaderoId);
+            int esperado = conteos.getOrDefault(parqueaderoId, 0);
+            int anterior = Contador.vehiculos(previo);
+            if (contador == null || anterior == esperado || contador.enCurso.get() != 0) {
+                return;
+            }
+            if (contador.estado.compareAndSet(previo, Contador.siguiente(previo, esperado))) {
+                log.warn("Ocupación del parqueadero ID: {} corregida de {} a {}", parqueaderoId, anterior, esperado);
+            }
+        });
+        conteos.forEach((parqueaderoId, cantidad) -> ocupacion.putIfAbsent(parqueaderoId, new Contador(cantidad)));
+    }
+
+    private void confirmar(Contador contador) {
+        long actual;
+        do {
+            actual = contador.estado.get();
+        } while (!contador.estado.compareAndSet(actual, Contador.siguiente(actual, Contador.vehiculos(actual))));
+    }
+
+    private void liberar(Contador contador) {
+        long actual;
+        do {
+            actual = contador.estado.get();
+        } while (!contador.estado.compareAndSet(actual,
+                Contador.siguiente(actual, Math.max(Contador.vehiculos(actual) - 1, 0))));
+    }
+
+    private Contador obtenerContador(Long parqueaderoId) {
+        Contador contador = ocupacion.get(parqueaderoId);
+        if (contador != null) {
+            return contador;
+        }
+        // La consulta va fuera de computeIfAbsent: bloquear dentro del lock del mapa fija el hilo virtual a su portador
+        Contador nuevo = new Contador((int) vehiculoRepository.countByParqueaderoIdAndFechaSalidaIsNull(parqueaderoId));
+        contador = ocupacion.putIfAbsent(parqueaderoId, nuevo);
+        return contador != null ? contador : nuevo;
+    }
+
+    private Map<Long, Integer> contarOcupacionEnBaseDeDatos() {
+        List<Object[]> resultados = vehiculoRepository.countVehiculosActivosAgrupadosPorParqueadero();
+
+        Map<Long, Integer> conteos = new HashMap<>();
+        for (Object[] resultado : resultados) {
+            conteos.put((Long) resultado[0], ((Long) resultado[1]).intValue());
+        }
+        return conteos;
+    }
+}
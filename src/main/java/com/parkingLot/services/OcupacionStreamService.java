@@ -0,0 +1,297 @@
+package com.parkingLot.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parkingLot.dto.OcupacionResponse;
+import com.parkingLot.dto.ParqueaderoSnapshot;
+import com.parkingLot.exceptions.ServicioSaturadoException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Publica la ocupación de cada parqueadero por Server-Sent Events. Los ingresos y salidas confirmados solo
+// marcan el parqueadero como pendiente; cada intervalo se envía un único evento por parqueadero marcado,
+// así una ráfaga en la portería se resume en un mensaje. Un suscriptor inactivo no ocupa hilos: es una
+// conexión asíncrona más en la lista de su parqueadero, y el latido periódico detecta las que se cerraron.
+// Las escrituras van en hilos virtuales, fuera del planificador: un cliente lento solo retrasa sus propios eventos.
+@Service
+@Slf4j
+public class OcupacionStreamService {
+
+    private static final String EVENTO_OCUPACION = "ocupacion";
+
+    private final OcupacionService ocupacionService;
+    private final ParqueaderoCacheService parqueaderoCacheService;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int maximoSuscriptores;
+
+    private final ConcurrentHashMap<Long, CopyOnWriteArrayList<Suscriptor>> suscriptores = new ConcurrentHashMap<>();
+    private final ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger totalSuscriptores = new AtomicInteger();
+
+    // Último ingreso y última salida de cada parqueadero con movimiento desde el arranque
+    private final ConcurrentHashMap<Long, UltimosMovimientos> ultimos = new ConcurrentHashMap<>();
+    private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+
+    private final Set<ResponseBodyEmitter.DataWithMediaType> latido = SseEmitter.event().comment("latido").build();
+
+    private record UltimosMovimientos(String placaIngreso, LocalDateTime fechaIngreso,
+                                      String placaSalida, LocalDateTime fechaSalida) {
+    }
+
+    // Si llega un evento mientras el anterior todavía se escribe, solo se conserva el más reciente:
+    // cada evento de ocupación trae el estado completo, así que los intermedios sobran
+    private final class Suscriptor {
+        private final Long parqueaderoId;
+        private final SseEmitter emisor;
+        private final AtomicReference<Set<ResponseBodyEmitter.DataWithMediaType>> pendiente = new AtomicReference<>();
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        private Suscriptor(Long parqueaderoId, SseEmitter emisor) {
+            this.parqueaderoId = parqueaderoId;
+            this.emisor = emisor;
+        }
+
+        // El latido no reemplaza un evento pendiente: cualquier envío mantiene viva la conexión
+        private void encolar(Set<ResponseBodyEmitter.DataWithMediaType> evento, boolean reemplazar) {
+            if (reemplazar) {
+                pendiente.set(evento);
+            } else if (!pendiente.compareAndSet(null, evento)) {
+                return;
+            }
+            programar();
+        }
+
+        private void programar() {
+            if (enviando.compareAndSet(false, true)) {
+                try {
+                    envios.execute(this::enviarPendientes);
+                } catch (RejectedExecutionException e) {
+                    // El servicio se está cerrando
+                    enviando.set(false);
+                }
+            }
+        }
+
+        private void enviarPendientes() {
+            Set<ResponseBodyEmitter.DataWithMediaType> evento;
+            while ((evento = pendiente.getAndSet(null)) != null) {
+                try {
+                    emisor.send(evento);
+                } catch (IOException | IllegalStateException e) {
+                    // Conexión cerrada por el cliente o ya completada; el contenedor notifica el error al emisor
+                    quitar(this);
+                    return;
+                }
+            }
+            enviando.set(false);
+            // Un evento pudo llegar entre el último getAndSet y liberar la marca
+            if (pendiente.get() != null) {
+                programar();
+            }
+        }
+    }
+
+    public OcupacionStreamService(OcupacionService ocupacionService,
+                                  ParqueaderoCacheService parqueaderoCacheService,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${parking.ocupacion.stream.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${server.tomcat.max-connections:8192}") int maximoConexiones,
+                                  @Value("${parking.ocupacion.stream.conexiones-reservadas:1024}") int conexionesReservadas,
+                                  @Value("${parking.ocupacion.stream.max-suscriptores:0}") int maximoSuscriptores) {
+        this.ocupacionService = ocupacionService;
+        this.parqueaderoCacheService = parqueaderoCacheService;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        // Cada suscriptor ocupa una conexión de Tomcat: se deja margen para que ingresos, salidas y consultas
+        // sigan siendo aceptados. max-suscriptores solo puede bajar ese límite
+        int limite = maximoConexiones > 0 ? Math.max(0, maximoConexiones - conexionesReservadas) : Integer.MAX_VALUE;
+        this.maximoSuscriptores = maximoSuscriptores > 0 ? Math.min(maximoSuscriptores, limite) : limite;
+        log.info("Máximo de suscriptores al flujo de ocupación: {} (conexiones de Tomcat: {}, reservadas: {})",
+                this.maximoSuscriptores, maximoConexiones, conexionesReservadas);
+
+        Gauge.builder("parking.ocupacion.stream.suscriptores", totalSuscriptores, AtomicInteger::get)
+                .description("Conexiones abiertas al flujo de ocupación")
+                .register(meterRegistry);
+    }
+
+    // El cliente recibe de inmediato el estado actual y luego solo los cambios.
+    // Al vencer el timeout la conexión se cierra y el cliente SSE se reconecta por su cuenta.
+    public SseEmitter suscribir(Long parqueaderoId) {
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        if (totalSuscriptores.incrementAndGet() > maximoSuscriptores) {
+            totalSuscriptores.decrementAndGet();
+            log.warn("Suscripción al flujo de ocupación rechazada: {} conexiones abiertas", maximoSuscriptores);
+            throw new ServicioSaturadoException(
+                    "Se alcanzó el máximo de conexiones al flujo de ocupación, intente de nuevo en unos segundos");
+        }
+
+        SseEmitter emisor = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(parqueaderoId, emisor);
+        CopyOnWriteArrayList<Suscriptor> lista = suscriptores.compute(parqueaderoId, (id, actual) -> {
+            CopyOnWriteArrayList<Suscriptor> resultado = actual != null ? actual : new CopyOnWriteArrayList<>();
+            resultado.add(suscriptor);
+            return resultado;
+        });
+        emisor.onCompletion(() -> quitar(suscriptor));
+        emisor.onTimeout(emisor::complete);
+        emisor.onError(error -> quitar(suscriptor));
+
+        try {
+            emisor.send(evento(construirOcupacion(parqueadero)));
+        } catch (IOException e) {
+            quitar(suscriptor);
+        }
+        log.debug("Nueva suscripción al flujo de ocupación del parqueadero ID: {} ({} en este parqueadero)",
+                parqueaderoId, lista.size());
+        return emisor;
+    }
+
+    // Se ejecuta tras el commit (o de inmediato fuera de una transacción); un rollback no se publica
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alMoverVehiculo(VehiculoService.MovimientoVehiculo movimiento) {
+        ultimos.merge(movimiento.parqueaderoId(), aUltimos(movimiento), OcupacionStreamService::masRecientes);
+        pendientes.add(movimiento.parqueaderoId());
+    }
+
+    // Las conexiones de un parqueadero eliminado se cierran aunque no tenga movimientos pendientes
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alEliminarParqueadero(ParqueaderoService.ParqueaderoEliminado eliminado) {
+        Long parqueaderoId = eliminado.parqueaderoId();
+        pendientes.remove(parqueaderoId);
+        ultimos.remove(parqueaderoId);
+
+        List<Suscriptor> lista = suscriptores.get(parqueaderoId);
+        if (lista != null) {
+            lista.forEach(this::desconectar);
+            log.debug("Flujo de ocupación del parqueadero ID: {} cerrado al eliminarlo", parqueaderoId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${parking.ocupacion.stream.intervalo-ms:1000}")
+    public void publicarCambios() {
+        Iterator<Long> iterador = pendientes.iterator();
+        while (iterador.hasNext()) {
+            Long parqueaderoId = iterador.next();
+            iterador.remove();
+
+            List<Suscriptor> lista = suscriptores.get(parqueaderoId);
+            if (lista == null || lista.isEmpty()) {
+                continue;
+            }
+
+            Optional<ParqueaderoSnapshot> parqueadero = parqueaderoCacheService.obtener(parqueaderoId);
+            if (parqueadero.isEmpty()) {
+                // El parqueadero se eliminó: se cierran sus conexiones
+                lista.forEach(this::desconectar);
+                continue;
+            }
+
+            // El evento se serializa una sola vez para todos los suscriptores del parqueadero
+            Set<ResponseBodyEmitter.DataWithMediaType> evento;
+            try {
+                evento = evento(construirOcupacion(parqueadero.get()));
+            } catch (JsonProcessingException e) {
+                log.error("No se pudo serializar la ocupación del parqueadero ID: {}", parqueaderoId, e);
+                continue;
+            }
+            lista.forEach(suscriptor -> suscriptor.encolar(evento, true));
+        }
+    }
+
+    // Mantiene abiertas las conexiones a través de proxies y descarta las que el cliente ya cerró
+    @Scheduled(fixedDelayString = "${parking.ocupacion.stream.latido-ms:15000}")
+    public void enviarLatido() {
+        suscriptores.values().forEach(lista -> lista.forEach(suscriptor -> suscriptor.encolar(latido, false)));
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        envios.shutdown();
+        suscriptores.values().forEach(lista -> lista.forEach(suscriptor -> suscriptor.emisor.complete()));
+    }
+
+    // Se quita de inmediato: el contenedor notifica la finalización del emisor más tarde
+    private void desconectar(Suscriptor suscriptor) {
+        quitar(suscriptor);
+        suscriptor.emisor.complete();
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        suscriptores.computeIfPresent(suscriptor.parqueaderoId, (id, lista) -> {
+            if (lista.remove(suscriptor)) {
+                totalSuscriptores.decrementAndGet();
+            }
+            return lista.isEmpty() ? null : lista;
+        });
+    }
+
+    private OcupacionResponse construirOcupacion(ParqueaderoSnapshot parqueadero) {
+        int ocupados = ocupacionService.obtenerOcupacion(parqueadero.getId());
+        UltimosMovimientos movimientos = ultimos.get(parqueadero.getId());
+
+        OcupacionResponse.OcupacionResponseBuilder respuesta = OcupacionResponse.builder()
+                .parqueaderoId(parqueadero.getId())
+                .ocupados(ocupados)
+                .capacidadMaxima(parqueadero.getCapacidadMaxima())
+                .disponibles(Math.max(0, parqueadero.getCapacidadMaxima() - ocupados));
+        if (movimientos != null) {
+            respuesta.placaUltimoIngreso(movimientos.placaIngreso())
+                    .fechaUltimoIngreso(movimientos.fechaIngreso())
+                    .placaUltimaSalida(movimientos.placaSalida())
+                    .fechaUltimaSalida(movimientos.fechaSalida());
+        }
+        return respuesta.build();
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> evento(OcupacionResponse ocupacion) throws JsonProcessingException {
+        return SseEmitter.event()
+                .name(EVENTO_OCUPACION)
+                .data(objectMapper.writeValueAsString(ocupacion))
+                .build();
+    }
+
+    private static UltimosMovimientos aUltimos(VehiculoService.MovimientoVehiculo movimiento) {
+        return movimiento.ingreso()
+                ? new UltimosMovimientos(movimiento.placa(), movimiento.fecha(), null, null)
+                : new UltimosMovimientos(null, null, movimiento.placa(), movimiento.fecha());
+    }
+
+    // Conserva el movimiento más reciente de cada tipo: los commits concurrentes pueden llegar en desorden
+    private static UltimosMovimientos masRecientes(UltimosMovimientos actual, UltimosMovimientos nuevo) {
+        boolean ingresoNuevo = nuevo.fechaIngreso() != null
+                && (actual.fechaIngreso() == null || nuevo.fechaIngreso().isAfter(actual.fechaIngreso()));
+        boolean salidaNueva = nuevo.fechaSalida() != null
+                && (actual.fechaSalida() == null || nuevo.fechaSalida().isAfter(actual.fechaSalida()));
+        return new UltimosMovimientos(
+                ingresoNuevo ? nuevo.placaIngreso() : actual.placaIngreso(),
+                ingresoNuevo ? nuevo.fechaIngreso() : actual.fechaIngreso(),
+                salidaNueva ? nuevo.placaSalida() : actual.placaSalida(),
+                salidaNueva ? nuevo.fechaSalida() : actual.fechaSalida());
+    }
+}
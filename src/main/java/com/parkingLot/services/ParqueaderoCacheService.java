@@ -0,0 +1,71 @@
+package com.parkingLot.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.parkingLot.dto.ParqueaderoSnapshot;
+import com.parkingLot.exceptions.BadRequestException;
+import com.parkingLot.repositories.ParqueaderoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Caché de lectura de parqueaderos con tamaño y tiempo de vida acotados.
+// ParqueaderoService la invalida explícitamente en cada modificación.
+@Service
+@Slf4j
+public class ParqueaderoCacheService {
+
+    private final ParqueaderoRepository parqueaderoRepository;
+    private final Cache<Long, ParqueaderoSnapshot> cache;
+
+    public ParqueaderoCacheService(ParqueaderoRepository parqueaderoRepository,
+                                   @Value("${parking.cache.parqueaderos.tamano-maximo:10000}") long tamanoMaximo,
+                                   @Value("${parking.cache.parqueaderos.ttl:PT5M}") Duration ttl) {
+        this.parqueaderoRepository = parqueaderoRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Optional<ParqueaderoSnapshot> obtener(Long parqueaderoId) {
+        return Optional.ofNullable(cache.get(parqueaderoId,
+                id -> parqueaderoRepository.findSnapshotById(id).orElse(null)));
+    }
+
+    public ParqueaderoSnapshot obtenerExistente(Long parqueaderoId) {
+        return obtener(parqueaderoId)
+                .orElseThrow(() -> new BadRequestException(
+                        "El parqueadero con ID " + parqueaderoId + " no existe"));
+    }
+
+    // Resuelve varios parqueaderos con una sola consulta para los que no estén en caché
+    public Map<Long, ParqueaderoSnapshot> obtenerTodos(Collection<Long> parqueaderoIds) {
+        return cache.getAll(parqueaderoIds, faltantes -> parqueaderoRepository.findSnapshotsByIdIn(faltantes).stream()
+                .collect(Collectors.toMap(ParqueaderoSnapshot::getId, Function.identity())));
+    }
+
+    // Invalida ahora y de nuevo tras el commit, para no conservar una lectura hecha antes de confirmar el cambio
+    public void invalidar(Long parqueaderoId) {
+        cache.invalidate(parqueaderoId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(parqueaderoId);
+                }
+            });
+        }
+        log.debug("Parqueadero ID: {} invalidado en caché", parqueaderoId);
+    }
+}
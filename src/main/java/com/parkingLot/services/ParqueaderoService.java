@@ -8,6 +8,7 @@ import com.parkingLot.exceptions.BadRequestException;
 import com.parkingLot.repositories.ParqueaderoRepository;
 import com.parkingLot.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,13 @@ public class ParqueaderoService {
 
     private final ParqueaderoRepository parqueaderoRepository;
     private final UserRepository userRepository;
+    private final OcupacionService ocupacionService;
+    private final ParqueaderoCacheService parqueaderoCacheService;
+    private final FrecuenciaVehiculosService frecuenciaVehiculosService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public record ParqueaderoEliminado(Long parqueaderoId) {
+    }
 
     @Transactional
     public ParqueaderoResponse crear(ParqueaderoRequest request) {
@@ -27,7 +35,7 @@ public class ParqueaderoService {
             throw new BadRequestException("Ya existe un parqueadero con ese nombre");
         }
 
-        User socio = userRepository.findById(request.getSocioId())
+        User socio = userRepository.findConRolById(request.getSocioId())
                 .orElseThrow(() -> new BadRequestException("El socio no existe"));
 
         if (!socio.getRole().getNombre().equals("SOCIO")) {
@@ -54,7 +62,7 @@ public class ParqueaderoService {
 
     @Transactional(readOnly = true)
     public List<ParqueaderoResponse> listarTodos() {
-        return parqueaderoRepository.findAll().stream()
+        return parqueaderoRepository.findAllByOrderByIdAsc().stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
@@ -68,7 +76,7 @@ public class ParqueaderoService {
 
     @Transactional(readOnly = true)
     public ParqueaderoResponse obtenerPorId(Long id) {
-        Parqueadero parqueadero = parqueaderoRepository.findById(id)
+        Parqueadero parqueadero = parqueaderoRepository.findConSocioById(id)
                 .orElseThrow(() -> new BadRequestException("Parqueadero no encontrado"));
 
         return mapToResponse(parqueadero);
@@ -94,7 +102,7 @@ public class ParqueaderoService {
             throw new BadRequestException("Ya existe un parqueadero con ese nombre");
         }
 
-        User socio = userRepository.findById(request.getSocioId())
+        User socio = userRepository.findConRolById(request.getSocioId())
                 .orElseThrow(() -> new BadRequestException("El socio no existe"));
 
         if (!socio.getRole().getNombre().equals("SOCIO")) {
@@ -112,6 +120,7 @@ public class ParqueaderoService {
         parqueadero.setSocio(socio);
 
         parqueaderoRepository.save(parqueadero);
+        parqueaderoCacheService.invalidar(id);
 
         return mapToResponse(parqueadero);
     }
@@ -123,6 +132,7 @@ public class ParqueaderoService {
 
         parqueadero.setActivo(false);
         parqueaderoRepository.save(parqueadero);
+        parqueaderoCacheService.invalidar(id);
     }
 
     @Transactional
@@ -132,15 +142,20 @@ public class ParqueaderoService {
         }
 
         parqueaderoRepository.deleteById(id);
+        parqueaderoCacheService.invalidar(id);
+        ocupacionService.eliminar(id);
+        frecuenciaVehiculosService.eliminarParqueadero(id);
+        eventPublisher.publishEvent(new ParqueaderoEliminado(id));
     }
 
     @Transactional
     public ParqueaderoResponse activar(Long id) {
-        Parqueadero parqueadero = parqueaderoRepository.findById(id)
+        Parqueadero parqueadero = parqueaderoRepository.findConSocioById(id)
                 .orElseThrow(() -> new BadRequestException("Parqueadero no encontrado"));
 
         parqueadero.setActivo(true);
         parqueaderoRepository.save(parqueadero);
+        parqueaderoCacheService.invalidar(id);
 
         return mapToResponse(parqueadero);
     }
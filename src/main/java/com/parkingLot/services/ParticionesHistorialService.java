@@ -0,0 +1,276 @@
+package com.parkingLot.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Particionado mensual de vehiculos_historial por fecha_salida, con archivo y retención de meses antiguos.
+// Es opcional (parking.historial.particionado.habilitado) porque la primera ejecución reescribe la tabla;
+// por eso se prepara al crear el bean, antes de que el servidor web reciba salidas.
+// Las consultas de reportes filtran por fecha_salida, así Postgres descarta las particiones fuera del rango.
+@Service
+@ConditionalOnProperty(name = "parking.historial.particionado.habilitado", havingValue = "true")
+@Slf4j
+public class ParticionesHistorialService {
+
+    private static final String TABLA = "vehiculos_historial";
+    private static final String TABLA_ANTERIOR = "vehiculos_historial_sin_particionar";
+    private static final String PARTICION_DEFECTO = "vehiculos_historial_default";
+    private static final String PREFIJO_PARTICION = "vehiculos_historial_p";
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Índices declarados en VehiculoHistorial; en una tabla particionada se crean en cada partición
+    private static final List<String> INDICES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_vehiculos_historial_placa_codigo_salida ON vehiculos_historial (placa_codigo, fecha_salida, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehiculos_historial_parqueadero_placa ON vehiculos_historial (parqueadero_id, placa_codigo)",
+            "CREATE INDEX IF NOT EXISTS idx_vehiculos_historial_parqueadero_salida ON vehiculos_historial (parqueadero_id, fecha_salida, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehiculos_historial_salida ON vehiculos_historial (fecha_salida, id)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int mesesAdelante;
+    private final int mesesRetencion;
+    private final Path directorioArchivo;
+
+    public ParticionesHistorialService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${parking.historial.particionado.meses-adelante:3}") int mesesAdelante,
+                                       @Value("${parking.historial.retencion.meses:0}") int mesesRetencion,
+                                       @Value("${parking.historial.archivo.directorio:archivo-historial}") String directorioArchivo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mesesAdelante = mesesAdelante;
+        this.mesesRetencion = mesesRetencion;
+        this.directorioArchivo = Path.of(directorioArchivo);
+    }
+
+    @PostConstruct
+    public void preparar() {
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, TABLA);
+        if (!Boolean.TRUE.equals(existe)) {
+            log.warn("La tabla {} no existe; se omite el particionado", TABLA);
+            return;
+        }
+
+        if (!estaParticionada()) {
+            migrarATablaParticionada();
+        }
+        vaciarParticionDefecto();
+        asegurarParticiones();
+    }
+
+    @Scheduled(cron = "${parking.historial.particionado.cron:0 30 2 * * *}")
+    public void mantener() {
+        vaciarParticionDefecto();
+        asegurarParticiones();
+        if (mesesRetencion > 0) {
+            archivarParticionesAntiguas();
+        }
+    }
+
+    // Crea las particiones del mes actual y de los siguientes meses configurados
+    public void asegurarParticiones() {
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= mesesAdelante; i++) {
+            crearParticion(actual.plusMonths(i));
+        }
+    }
+
+    // Exporta a CSV comprimido cada partición más antigua que la retención y luego la elimina
+    public void archivarParticionesAntiguas() {
+        YearMonth limite = YearMonth.now().minusMonths(mesesRetencion);
+
+        List<String> particiones = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = ? AND c.relname LIKE ? ORDER BY c.relname",
+                String.class, TABLA, PREFIJO_PARTICION + "%");
+
+        for (String particion : particiones) {
+            YearMonth mes = YearMonth.parse(particion.substring(PREFIJO_PARTICION.length()), FORMATO_MES);
+            if (mes.isBefore(limite)) {
+                archivar(particion, mes);
+            }
+        }
+    }
+
+    // Las filas de meses sin partición caen en la partición por defecto; se llevan a la partición de su mes
+    // para que el archivo y la retención las alcancen
+    private void vaciarParticionDefecto() {
+        List<Timestamp> meses = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', fecha_salida) FROM " + PARTICION_DEFECTO +
+                        " WHERE fecha_salida IS NOT NULL",
+                Timestamp.class);
+        for (Timestamp mes : meses) {
+            crearParticion(YearMonth.from(mes.toLocalDateTime()));
+        }
+    }
+
+    private boolean estaParticionada() {
+        Boolean particionada = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                        "JOIN pg_class c ON c.oid = pt.partrelid " +
+                        "WHERE c.relname = ? AND pg_table_is_visible(c.oid))",
+                Boolean.class, TABLA);
+        return Boolean.TRUE.equals(particionada);
+    }
+
+    // Reescribe la tabla como particionada en una sola transacción. La clave primaria pasa a ser
+    // (id, fecha_salida) y el id usa una secuencia, porque Postgres anterior a 17 no admite
+    // columnas identity en tablas particionadas.
+    private void migrarATablaParticionada() {
+        log.info("Migrando {} a una tabla particionada por mes de fecha_salida", TABLA);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " RENAME TO " + TABLA_ANTERIOR);
+            jdbcTemplate.execute("CREATE TABLE " + TABLA + " (LIKE " + TABLA_ANTERIOR + " INCLUDING DEFAULTS) " +
+                    "PARTITION BY RANGE (fecha_salida)");
+            jdbcTemplate.execute("CREATE TABLE " + PARTICION_DEFECTO + " PARTITION OF " + TABLA + " DEFAULT");
+
+            Timestamp primeraSalida = jdbcTemplate.queryForObject(
+                    "SELECT MIN(fecha_salida) FROM " + TABLA_ANTERIOR, Timestamp.class);
+            YearMonth ultimo = YearMonth.now().plusMonths(mesesAdelante);
+            YearMonth mes = primeraSalida != null
+                    ? YearMonth.from(primeraSalida.toLocalDateTime())
+                    : YearMonth.now();
+            for (; !mes.isAfter(ultimo); mes = mes.plusMonths(1)) {
+                crearParticion(mes);
+            }
+
+            int filas = jdbcTemplate.update("INSERT INTO " + TABLA + " SELECT * FROM " + TABLA_ANTERIOR);
+            Long maximoId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + TABLA_ANTERIOR, Long.class);
+            jdbcTemplate.execute("DROP TABLE " + TABLA_ANTERIOR);
+
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " ADD CONSTRAINT vehiculos_historial_pkey PRIMARY KEY (id, fecha_salida)");
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " ADD CONSTRAINT fk_vehiculos_historial_parqueadero " +
+                    "FOREIGN KEY (parqueadero_id) REFERENCES parqueaderos (id)");
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS vehiculos_historial_id_seq");
+            jdbcTemplate.execute("ALTER SEQUENCE vehiculos_historial_id_seq OWNED BY " + TABLA + ".id");
+            jdbcTemplate.queryForObject("SELECT setval('vehiculos_historial_id_seq', ?, false)", Long.class,
+                    (maximoId != null ? maximoId : 0L) + 1);
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " ALTER COLUMN id SET DEFAULT nextval('vehiculos_historial_id_seq')");
+            INDICES.forEach(jdbcTemplate::execute);
+
+            log.info("Migración de {} completada: {} registros copiados", TABLA, filas);
+        });
+    }
+
+    // Postgres no permite crear la partición de un mes mientras la partición por defecto tenga filas de ese mes:
+    // en ese caso se crea aparte, se le mueven esas filas y se adjunta, todo en una transacción
+    private void crearParticion(YearMonth mes) {
+        String nombre = PREFIJO_PARTICION + mes.format(FORMATO_MES);
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, nombre);
+        if (Boolean.TRUE.equals(existe)) {
+            return;
+        }
+
+        String rango = " FOR VALUES FROM ('" + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')";
+        String filtro = " WHERE fecha_salida >= '" + mes.atDay(1) + "' AND fecha_salida < '" +
+                mes.plusMonths(1).atDay(1) + "'";
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Long enDefecto = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + PARTICION_DEFECTO + filtro, Long.class);
+            if (enDefecto == null || enDefecto == 0) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + nombre + " PARTITION OF " + TABLA + rango);
+                return;
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + nombre + " (LIKE " + TABLA + " INCLUDING DEFAULTS)");
+            jdbcTemplate.update("INSERT INTO " + nombre + " SELECT * FROM " + PARTICION_DEFECTO + filtro);
+            jdbcTemplate.update("DELETE FROM " + PARTICION_DEFECTO + filtro);
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " ATTACH PARTITION " + nombre + rango);
+            log.warn("Partición {} creada con {} registros movidos desde {}", nombre, enDefecto, PARTICION_DEFECTO);
+        });
+    }
+
+    private void archivar(String particion, YearMonth mes) {
+        Path destino = directorioArchivo.resolve(TABLA + "_" + mes.format(FORMATO_MES) + ".csv.gz");
+        Path temporal = directorioArchivo.resolve(destino.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(directorioArchivo);
+            long filas = exportar(particion, temporal);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Solo se elimina la partición cuando el archivo quedó completo en disco
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " DETACH PARTITION " + particion);
+                jdbcTemplate.execute("DROP TABLE " + particion);
+            });
+            log.info("Partición {} archivada en {} ({} registros)", particion, destino, filas);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("No se pudo archivar la partición {}", particion, e);
+        }
+    }
+
+    private long exportar(String particion, Path archivo) throws IOException {
+        try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(archivo));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8))) {
+            long[] filas = {0};
+
+            // Lectura por bloques dentro de una transacción de solo lectura
+            JdbcTemplate lector = new JdbcTemplate(jdbcTemplate.getDataSource());
+            lector.setFetchSize(1000);
+            TransactionTemplate lectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            lectura.setReadOnly(true);
+
+            lectura.executeWithoutResult(status -> lector.query("SELECT * FROM " + particion + " ORDER BY id",
+                    (RowCallbackHandler) rs -> {
+                        try {
+                            ResultSetMetaData metadatos = rs.getMetaData();
+                            int columnas = metadatos.getColumnCount();
+                            if (filas[0] == 0) {
+                                for (int i = 1; i <= columnas; i++) {
+                                    writer.write((i > 1 ? "," : "") + metadatos.getColumnName(i));
+                                }
+                                writer.write('\n');
+                            }
+                            for (int i = 1; i <= columnas; i++) {
+                                writer.write((i > 1 ? "," : "") + valorCsv(rs.getString(i)));
+                            }
+                            writer.write('\n');
+                            filas[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+            return filas[0];
+        }
+    }
+
+    private static String valorCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+}
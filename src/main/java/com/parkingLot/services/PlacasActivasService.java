@@ -0,0 +1,260 @@
+package com.parkingLot.services;
+
+import com.parkingLot.repositories.VehiculoRepository;
+import com.parkingLot.utils.PlacaCodec;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Índice en memoria de las placas que están actualmente dentro de algún parqueadero.
+// La restricción única sobre vehiculos.placa sigue siendo la garantía final en base de datos.
+// Incluye un índice de n-gramas (1 a 3 caracteres) para buscar placas por fragmento sin recorrer la tabla.
+@Service
+@DependsOn("placaCodigoInitializer")
+@RequiredArgsConstructor
+@Slf4j
+public class PlacasActivasService {
+
+    private final VehiculoRepository vehiculoRepository;
+
+    private static final int LONGITUD_MAXIMA_NGRAMA = 3;
+    // Desplazamiento de la clave según la longitud del n-grama: 1 -> 0, 2 -> 36, 3 -> 36 + 36^2
+    private static final int[] DESPLAZAMIENTO_NGRAMA = {0, 0, 36, 36 + 36 * 36};
+
+    private final ConcurrentHashMap<Long, UbicacionVehiculo> ubicaciones = new ConcurrentHashMap<>();
+
+    // Clave del n-grama -> códigos de las placas confirmadas que lo contienen.
+    // Solo se modifica dentro de compute sobre ubicaciones, así queda serializado con los cambios de la misma placa.
+    private final ConcurrentHashMap<Integer, Set<Long>> ngramas = new ConcurrentHashMap<>();
+
+    // vehiculoId es null mientras la transacción de ingreso no ha hecho commit
+    public record UbicacionVehiculo(Long vehiculoId, Long parqueaderoId, LocalDateTime fechaIngreso) {
+
+        public boolean confirmada() {
+            return vehiculoId != null;
+        }
+    }
+
+    public record CoincidenciaPlaca(String placa, UbicacionVehiculo ubicacion) {
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        List<Object[]> activos = vehiculoRepository.findUbicacionesActivas();
+        for (Object[] activo : activos) {
+            long placaCodigo = PlacaCodec.codificar((String) activo[1]);
+            ubicaciones.put(placaCodigo,
+                    new UbicacionVehiculo((Long) activo[0], (Long) activo[2], (LocalDateTime) activo[3]));
+            indexar(placaCodigo);
+        }
+        log.info("Índice de placas activas inicializado con {} vehículos", ubicaciones.size());
+    }
+
+    // Reconstruye el índice desde la base de datos; solo debe llamarse sin tráfico (al reproducir el diario de la puerta)
+    public void recargar() {
+        ubicaciones.clear();
+        ngramas.clear();
+        inicializar();
+    }
+
+    public Optional<UbicacionVehiculo> buscar(long placaCodigo) {
+        return Optional.ofNullable(ubicaciones.get(placaCodigo));
+    }
+
+    // Placas confirmadas que contienen el fragmento (ya normalizado en mayúsculas)
+    public List<CoincidenciaPlaca> buscarPorFragmento(String fragmento) {
+        int longitud = fragmento.length();
+        if (longitud == 0 || longitud > PlacaCodec.LONGITUD_PLACA) {
+            return List.of();
+        }
+
+        int[] valores = new int[longitud];
+        for (int i = 0; i < longitud; i++) {
+            valores[i] = PlacaCodec.valorDe(fragmento.charAt(i));
+            if (valores[i] < 0) {
+                return List.of();
+            }
+        }
+
+        // Con más de 3 caracteres se parte del trigrama menos frecuente y se verifica cada candidato
+        Set<Long> candidatos = null;
+        for (int inicio = 0; inicio + Math.min(longitud, LONGITUD_MAXIMA_NGRAMA) <= longitud; inicio++) {
+            Set<Long> placas = ngramas.getOrDefault(
+                    claveNgrama(valores, inicio, Math.min(longitud, LONGITUD_MAXIMA_NGRAMA)), Set.of());
+            if (candidatos == null || placas.size() < candidatos.size()) {
+                candidatos = placas;
+            }
+        }
+
+        List<CoincidenciaPlaca> coincidencias = new ArrayList<>();
+        for (Long placaCodigo : candidatos) {
+            UbicacionVehiculo ubicacion = ubicaciones.get(placaCodigo);
+            if (ubicacion == null || !ubicacion.confirmada()) {
+                continue;
+            }
+            String placa = PlacaCodec.decodificar(placaCodigo);
+            if (longitud > LONGITUD_MAXIMA_NGRAMA && !placa.contains(fragmento)) {
+                continue;
+            }
+            coincidencias.add(new CoincidenciaPlaca(placa, ubicacion));
+        }
+        return coincidencias;
+    }
+
+    // Aparta la placa para un ingreso; si la transacción no hace commit la placa se libera
+    public Optional<UbicacionVehiculo> reservarIngreso(long placaCodigo, Long parqueaderoId, LocalDateTime fechaIngreso) {
+        UbicacionVehiculo pendiente = new UbicacionVehiculo(null, parqueaderoId, fechaIngreso);
+        if (ubicaciones.putIfAbsent(placaCodigo, pendiente) != null) {
+            return Optional.empty();
+        }
+
+        alFinalizar(exito -> {
+            if (!exito) {
+                ubicaciones.remove(placaCodigo, pendiente);
+            }
+        });
+        return Optional.of(pendiente);
+    }
+
+    // Libera de inmediato una reserva de ingreso que no llegará a insertarse
+    public void cancelarIngreso(long placaCodigo, UbicacionVehiculo pendiente) {
+        ubicaciones.remove(placaCodigo, pendiente);
+    }
+
+    public void confirmarIngreso(long placaCodigo, UbicacionVehiculo pendiente, Long vehiculoId) {
+        UbicacionVehiculo confirmada = new UbicacionVehiculo(vehiculoId, pendiente.parqueaderoId(), pendiente.fechaIngreso());
+        alFinalizar(exito -> {
+            if (exito) {
+                ubicaciones.computeIfPresent(placaCodigo, (codigo, actual) -> {
+                    if (!actual.equals(pendiente)) {
+                        return actual;
+                    }
+                    indexar(codigo);
+                    return confirmada;
+                });
+            }
+        });
+    }
+
+    // Retira la placa del índice para registrar su salida; si la transacción no hace commit se restaura
+    public Optional<UbicacionVehiculo> reservarSalida(long placaCodigo, Long parqueaderoId) {
+        return reservarSalida(placaCodigo, parqueaderoId, ubicacion -> {
+        });
+    }
+
+    // Mientras corre alRetirar la placa queda apartada con una marca sin confirmar: ningún ingreso ni otra salida
+    // de la misma placa puede reservarla antes. alRetirar corre fuera del lock del mapa (puede bloquear sin fijar
+    // un hilo virtual a su portador). Si alRetirar lanza una excepción la placa se restaura.
+    public Optional<UbicacionVehiculo> reservarSalida(long placaCodigo, Long parqueaderoId,
+                                                      Consumer<UbicacionVehiculo> alRetirar) {
+        UbicacionVehiculo ubicacion = ubicaciones.get(placaCodigo);
+        if (ubicacion == null || !ubicacion.confirmada() || !ubicacion.parqueaderoId().equals(parqueaderoId)) {
+            return Optional.empty();
+        }
+
+        // Sin fecha de ingreso la marca nunca es igual a una reserva de ingreso pendiente
+        UbicacionVehiculo marca = new UbicacionVehiculo(null, parqueaderoId, null);
+        if (!ubicaciones.replace(placaCodigo, ubicacion, marca)) {
+            return Optional.empty();
+        }
+        try {
+            alRetirar.accept(ubicacion);
+        } catch (RuntimeException e) {
+            ubicaciones.replace(placaCodigo, marca, ubicacion);
+            throw e;
+        }
+        ubicaciones.remove(placaCodigo, marca);
+
+        alFinalizar(exito -> {
+            if (!exito) {
+                ubicaciones.putIfAbsent(placaCodigo, ubicacion);
+            } else {
+                // Si la placa ya volvió a ingresar no se toca su entrada en el índice
+                ubicaciones.compute(placaCodigo, (codigo, actual) -> {
+                    if (actual == null) {
+                        desindexar(codigo);
+                    }
+                    return actual;
+                });
+            }
+        });
+        return Optional.of(ubicacion);
+    }
+
+    // Descarta definitivamente una entrada que ya no corresponde a ningún registro en base de datos
+    public void descartar(long placaCodigo, UbicacionVehiculo ubicacion) {
+        log.warn("Entrada obsoleta en el índice de placas activas para el vehículo ID: {}", ubicacion.vehiculoId());
+        alFinalizar(exito -> ubicaciones.computeIfPresent(placaCodigo, (codigo, actual) -> {
+            if (!actual.equals(ubicacion)) {
+                return actual;
+            }
+            desindexar(codigo);
+            return null;
+        }));
+    }
+
+    private void indexar(long placaCodigo) {
+        int[] valores = valoresDe(placaCodigo);
+        for (int longitud = 1; longitud <= LONGITUD_MAXIMA_NGRAMA; longitud++) {
+            for (int inicio = 0; inicio + longitud <= valores.length; inicio++) {
+                ngramas.computeIfAbsent(claveNgrama(valores, inicio, longitud), clave -> ConcurrentHashMap.newKeySet())
+                        .add(placaCodigo);
+            }
+        }
+    }
+
+    private void desindexar(long placaCodigo) {
+        int[] valores = valoresDe(placaCodigo);
+        for (int longitud = 1; longitud <= LONGITUD_MAXIMA_NGRAMA; longitud++) {
+            for (int inicio = 0; inicio + longitud <= valores.length; inicio++) {
+                Set<Long> placas = ngramas.get(claveNgrama(valores, inicio, longitud));
+                if (placas != null) {
+                    placas.remove(placaCodigo);
+                }
+            }
+        }
+    }
+
+    private static int[] valoresDe(long placaCodigo) {
+        int[] valores = new int[PlacaCodec.LONGITUD_PLACA];
+        for (int i = valores.length - 1; i >= 0; i--) {
+            valores[i] = (int) (placaCodigo % 36);
+            placaCodigo /= 36;
+        }
+        return valores;
+    }
+
+    private static int claveNgrama(int[] valores, int inicio, int longitud) {
+        int clave = 0;
+        for (int i = inicio; i < inicio + longitud; i++) {
+            clave = clave * 36 + valores[i];
+        }
+        return DESPLAZAMIENTO_NGRAMA[longitud] + clave;
+    }
+
+    private void alFinalizar(Consumer<Boolean> accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.accept(true);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                accion.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.parkingLot.services;
+
+import com.parkingLot.dto.IntervaloGanancias;
+import com.parkingLot.dto.ResumenGanancias;
+import com.parkingLot.dto.SerieGananciasResponse;
+import com.parkingLot.repositories.GananciaDiariaRepository;
+import com.parkingLot.repositories.VehiculoHistorialRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Libro de ganancias pre-agregado por parqueadero y día de salida
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RegistroGananciasService {
+
+    private final GananciaDiariaRepository gananciaDiariaRepository;
+    private final VehiculoHistorialRepository vehiculoHistorialRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void inicializar() {
+        // Construye el libro a partir del historial la primera vez que se despliega
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (gananciaDiariaRepository.count() == 0 && vehiculoHistorialRepository.count() > 0) {
+                int dias = gananciaDiariaRepository.reconstruirDesdeHistorial();
+                log.info("Libro de ganancias reconstruido desde el historial ({} registros diarios)", dias);
+            }
+        });
+    }
+
+    // Solo para las salidas por lote, en la misma transacción que escribe el historial;
+    // la salida individual y el diario de la puerta acumulan las ganancias en la sentencia que mueve el vehículo
+    @Transactional
+    public void registrar(Long parqueaderoId, LocalDate fechaSalida, BigDecimal monto, long cantidadVehiculos) {
+        gananciaDiariaRepository.acumular(parqueaderoId, fechaSalida, monto, cantidadVehiculos);
+    }
+
+    @Transactional(readOnly = true)
+    public ResumenGanancias sumar(Long parqueaderoId, LocalDate desde, LocalDate hasta) {
+        return gananciaDiariaRepository.sumarPorParqueaderoYRango(parqueaderoId, desde, hasta);
+    }
+
+    // Ganancias de salidas en [desde, hasta): los días completos salen del libro y
+    // los extremos parciales se agregan en SQL sobre el historial
+    @Transactional(readOnly = true)
+    public ResumenGanancias sumarIntervalo(Long parqueaderoId, LocalDateTime desde, LocalDateTime hasta) {
+        LocalDate primerDiaCompleto = desde.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? desde.toLocalDate()
+                : desde.toLocalDate().plusDays(1);
+        LocalDate finDiasCompletos = hasta.toLocalDate();
+
+        if (!primerDiaCompleto.isBefore(finDiasCompletos)) {
+            return vehiculoHistorialRepository.resumirEstadias(parqueaderoId, desde, hasta);
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        long cantidad = 0;
+
+        ResumenGanancias dias = sumar(parqueaderoId, primerDiaCompleto, finDiasCompletos.minusDays(1));
+        total = total.add(dias.getTotalGanancias());
+        cantidad += dias.getCantidadVehiculos();
+
+        if (desde.isBefore(primerDiaCompleto.atStartOfDay())) {
+            ResumenGanancias inicio = vehiculoHistorialRepository.resumirEstadias(
+                    parqueaderoId, desde, primerDiaCompleto.atStartOfDay());
+            total = total.add(inicio.getTotalGanancias());
+            cantidad += inicio.getCantidadVehiculos();
+        }
+
+        if (hasta.isAfter(finDiasCompletos.atStartOfDay())) {
+            ResumenGanancias fin = vehiculoHistorialRepository.resumirEstadias(
+                    parqueaderoId, finDiasCompletos.atStartOfDay(), hasta);
+            total = total.add(fin.getTotalGanancias());
+            cantidad += fin.getCantidadVehiculos();
+        }
+
+        return new Resumen(total, cantidad);
+    }
+
+    // Serie temporal densa de ganancias para los días [desde, hasta]; los intervalos sin salidas valen cero.
+    // Horas se agregan sobre el historial, el resto sobre el libro diario.
+    @Transactional(readOnly = true)
+    public List<SerieGananciasResponse.Punto> serie(Long parqueaderoId, LocalDate desde, LocalDate hasta,
+                                                    IntervaloGanancias intervalo) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+
+        List<Object[]> filas = intervalo == IntervaloGanancias.HOUR
+                ? vehiculoHistorialRepository.agruparPorHora(parqueaderoId, inicio, fin)
+                : gananciaDiariaRepository.agruparPorIntervalo(parqueaderoId, desde, hasta, intervalo.getParametro());
+
+        Map<LocalDateTime, Object[]> porInicio = new HashMap<>();
+        for (Object[] fila : filas) {
+            porInicio.put(aLocalDateTime(fila[0]), fila);
+        }
+
+        List<SerieGananciasResponse.Punto> puntos = new ArrayList<>();
+        for (LocalDateTime actual = intervalo.truncar(inicio); actual.isBefore(fin); actual = intervalo.siguiente(actual)) {
+            Object[] fila = porInicio.get(actual);
+            puntos.add(SerieGananciasResponse.Punto.builder()
+                    .inicio(actual)
+                    .totalGanancias(fila != null ? (BigDecimal) fila[1] : BigDecimal.ZERO)
+                    .cantidadVehiculos(fila != null ? ((Number) fila[2]).longValue() : 0L)
+                    .build());
+        }
+        return puntos;
+    }
+
+    private LocalDateTime aLocalDateTime(Object valor) {
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) valor;
+    }
+
+    private record Resumen(BigDecimal totalGanancias, Long cantidadVehiculos) implements ResumenGanancias {
+
+        @Override
+        public BigDecimal getTotalGanancias() {
+            return totalGanancias;
+        }
+
+        @Override
+        public Long getCantidadVehiculos() {
+            return cantidadVehiculos;
+        }
+    }
+}
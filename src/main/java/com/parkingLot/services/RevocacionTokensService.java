@@ -0,0 +1,84 @@
+package com.parkingLot.services;
+
+import com.parkingLot.entities.TokenRevocado;
+import com.parkingLot.repositories.TokenRevocadoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Lista de tokens revocados: la tabla sobrevive a reinicios y el filtro JWT solo consulta el mapa en memoria
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RevocacionTokensService {
+
+    private final TokenRevocadoRepository tokenRevocadoRepository;
+
+    // jti del token revocado -> instante de expiración del token en milisegundos
+    private final ConcurrentHashMap<UUID, Long> revocados = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void inicializar() {
+        for (TokenRevocado token : tokenRevocadoRepository.findByExpiracionAfter(LocalDateTime.now())) {
+            revocados.put(token.getJti(), aMillis(token.getExpiracion()));
+        }
+        log.info("Lista de tokens revocados inicializada con {} tokens", revocados.size());
+    }
+
+    public boolean estaRevocado(UUID jti) {
+        return jti != null && revocados.containsKey(jti);
+    }
+
+    public void revocar(UUID jti, long expiracionMillis) {
+        if (jti == null || expiracionMillis <= System.currentTimeMillis()) {
+            return;
+        }
+
+        tokenRevocadoRepository.save(TokenRevocado.builder()
+                .jti(jti)
+                .expiracion(LocalDateTime.ofInstant(Instant.ofEpochMilli(expiracionMillis), ZoneId.systemDefault()))
+                .revocadoEn(LocalDateTime.now())
+                .build());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revocados.put(jti, expiracionMillis);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revocados.put(jti, expiracionMillis);
+            }
+        });
+    }
+
+    // Un token expirado ya es rechazado por la validación de firma, así que su entrada deja de ser necesaria
+    @Scheduled(fixedDelayString = "${parking.seguridad.purga-revocados-ms:600000}",
+            initialDelayString = "${parking.seguridad.purga-revocados-ms:600000}")
+    @Transactional
+    public void purgarExpirados() {
+        long ahora = System.currentTimeMillis();
+        revocados.values().removeIf(expiracion -> expiracion <= ahora);
+
+        int eliminados = tokenRevocadoRepository.deleteExpirados(LocalDateTime.now());
+        if (eliminados > 0) {
+            log.debug("{} tokens revocados expirados eliminados", eliminados);
+        }
+    }
+
+    private long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkingLot.services;
+
+import com.parkingLot.dto.AuthResponse;
+import com.parkingLot.entities.User;
+import com.parkingLot.exceptions.BadRequestException;
+import com.parkingLot.repositories.ParqueaderoRepository;
+import com.parkingLot.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Todo cambio de estado o de versión de token se publica en EstadoUsuariosService para que el filtro JWT lo vea
+@Service
+@RequiredArgsConstructor
+public class UsuarioService {
+
+    private final UserRepository userRepository;
+    private final ParqueaderoRepository parqueaderoRepository;
+    private final EstadoUsuariosService estadoUsuariosService;
+
+    @Transactional
+    public AuthResponse desactivar(Long id) {
+        User user = buscar(id);
+        user.setActive(false);
+        userRepository.save(user);
+        estadoUsuariosService.actualizar(user);
+
+        return mapToResponse(user, "Usuario desactivado");
+    }
+
+    @Transactional
+    public AuthResponse activar(Long id) {
+        User user = buscar(id);
+        user.setActive(true);
+        userRepository.save(user);
+        estadoUsuariosService.actualizar(user);
+
+        return mapToResponse(user, "Usuario activado");
+    }
+
+    // Invalida todos los tokens emitidos hasta ahora; el usuario debe volver a iniciar sesión
+    @Transactional
+    public AuthResponse revocarTokens(Long id) {
+        User user = buscar(id);
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        userRepository.save(user);
+        estadoUsuariosService.actualizar(user);
+
+        return mapToResponse(user, "Tokens del usuario revocados");
+    }
+
+    @Transactional
+    public void eliminarDefinitivamente(Long id) {
+        User user = buscar(id);
+
+        if (parqueaderoRepository.existsBySocioId(id)) {
+            throw new BadRequestException("El usuario tiene parqueaderos asignados");
+        }
+
+        userRepository.delete(user);
+        estadoUsuariosService.eliminar(user.getEmail());
+    }
+
+    private User buscar(Long id) {
+        return userRepository.findConRolById(id)
+                .orElseThrow(() -> new BadRequestException("Usuario no encontrado"));
+    }
+
+    private AuthResponse mapToResponse(User user, String message) {
+        return AuthResponse.builder()
+                .email(user.getEmail())
+                .nombre(user.getNombre())
+                .role(user.getRole().getNombre())
+                .message(message)
+                .build();
+    }
+}
@@ -1,69 +1,124 @@
 package com.parkingLot.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parkingLot.dto.EstadisticaPlacaResponse;
 import com.parkingLot.dto.GananciasResponse;
+import com.parkingLot.dto.IngresoLoteRequest;
+import com.parkingLot.dto.IntervaloGanancias;
 import com.parkingLot.dto.IngresoRequest;
 import com.parkingLot.dto.IngresoResponse;
+import com.parkingLot.dto.PaginaResponse;
+import com.parkingLot.dto.ParqueaderoSnapshot;
+import com.parkingLot.dto.ResultadoLoteResponse;
+import com.parkingLot.dto.ResumenGanancias;
+import com.parkingLot.dto.SalidaLoteRequest;
 import com.parkingLot.dto.SalidaRequest;
 import com.parkingLot.dto.SalidaResponse;
+import com.parkingLot.dto.SerieGananciasResponse;
 import com.parkingLot.dto.TopVehiculoResponse;
 import com.parkingLot.dto.VehiculoPrimeraVezResponse;
 import com.parkingLot.dto.VehiculoResponse;
-import com.parkingLot.entities.Parqueadero;
 import com.parkingLot.entities.Vehiculo;
 import com.parkingLot.entities.VehiculoHistorial;
 import com.parkingLot.exceptions.BadRequestException;
 import com.parkingLot.repositories.ParqueaderoRepository;
 import com.parkingLot.repositories.VehiculoHistorialRepository;
+import com.parkingLot.repositories.VehiculoLoteRepository;
 import com.parkingLot.repositories.VehiculoRepository;
-import com.parkingLot.utils.PlacaValidator;
+import com.parkingLot.utils.CursorPaginacion;
+import com.parkingLot.utils.EscritorNdjson;
+import com.parkingLot.utils.PlacaCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class VehiculoService {
 
+    private static final long MAXIMO_DIAS_SERIE = 3660;
+    private static final long MAXIMO_DIAS_SERIE_POR_HORA = 31;
+    private static final int LIMITE_PAGINA_POR_DEFECTO = 100;
+    private static final int LIMITE_PAGINA_MAXIMO = 1000;
+    private static final int LIMITE_RANKING_POR_DEFECTO = 10;
+    private static final int LIMITE_RANKING_MAXIMO = 100;
+
     private final VehiculoRepository vehiculoRepository;
     private final ParqueaderoRepository parqueaderoRepository;
     private final VehiculoHistorialRepository vehiculoHistorialRepository;
+    private final OcupacionService ocupacionService;
+    private final PlacasActivasService placasActivasService;
+    private final VehiculoLoteRepository vehiculoLoteRepository;
+    private final RegistroGananciasService registroGananciasService;
+    private final ParqueaderoCacheService parqueaderoCacheService;
+    private final FrecuenciaVehiculosService frecuenciaVehiculosService;
+    private final EstadisticasPlacaService estadisticasPlacaService;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final Optional<DiarioPuertaService> diarioPuertaService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LimiteExportacionesService limiteExportacionesService;
+
+    // Evento publicado por cada ingreso o salida registrada; lo consume el flujo de ocupación
+    public record MovimientoVehiculo(Long parqueaderoId, String placa, LocalDateTime fecha, boolean ingreso) {
+    }
 
-    @Transactional
     public IngresoResponse registrarIngreso(IngresoRequest request) {
+        return transaccionPuerta().execute(status -> procesarIngreso(request));
+    }
+
+    private IngresoResponse procesarIngreso(IngresoRequest request) {
         log.info("Registrando ingreso de vehículo con placa: {} al parqueadero ID: {}",
                 request.getPlaca(), request.getParqueaderoId());
 
-        String placaNormalizada = PlacaValidator.normalizarYValidarPlaca(request.getPlaca());
+        long placaCodigo = PlacaCodec.codificar(request.getPlaca());
+        String placaNormalizada = PlacaCodec.decodificar(placaCodigo);
+        LocalDateTime fechaIngreso = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
 
-        if (vehiculoRepository.existsByPlacaAndFechaSalidaIsNullAndActivoTrue(placaNormalizada)) {
-            log.warn("Intento de registrar placa {} que ya está en un parqueadero", placaNormalizada);
-            throw new BadRequestException(
-                    "No se puede Registrar Ingreso, ya existe la placa en este u otro parqueadero");
-        }
+        PlacasActivasService.UbicacionVehiculo reserva = placasActivasService
+                .reservarIngreso(placaCodigo, request.getParqueaderoId(), fechaIngreso)
+                .orElseThrow(() -> {
+                    log.warn("Intento de registrar placa {} que ya está en un parqueadero", placaNormalizada);
+                    return new BadRequestException(
+                            "No se puede Registrar Ingreso, ya existe la placa en este u otro parqueadero");
+                });
 
-        Parqueadero parqueadero = parqueaderoRepository.findById(request.getParqueaderoId())
-                .orElseThrow(() -> new BadRequestException(
-                        "El parqueadero con ID " + request.getParqueaderoId() + " no existe"));
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(request.getParqueaderoId());
 
         if (!parqueadero.getActivo()) {
             throw new BadRequestException("El parqueadero no está activo");
         }
 
-        long vehiculosActuales = vehiculoRepository
-                .countByParqueaderoIdAndFechaSalidaIsNull(request.getParqueaderoId());
-        if (vehiculosActuales >= parqueadero.getCapacidadMaxima()) {
+        if (!ocupacionService.reservar(parqueadero.getId(), parqueadero.getCapacidadMaxima())) {
+            int vehiculosActuales = ocupacionService.obtenerOcupacion(parqueadero.getId());
             log.warn("Intento de ingresar al parqueadero ID: {} que está lleno ({}/{})",
                     request.getParqueaderoId(), vehiculosActuales, parqueadero.getCapacidadMaxima());
             throw new BadRequestException(
@@ -71,32 +126,73 @@ public class VehiculoService {
                             vehiculosActuales + "/" + parqueadero.getCapacidadMaxima() + ")");
         }
 
+        if (diarioPuertaService.isPresent()) {
+            Long vehiculoId = diarioPuertaService.get().registrarIngreso(placaCodigo, parqueadero.getId(), fechaIngreso);
+            placasActivasService.confirmarIngreso(placaCodigo, reserva, vehiculoId);
+            eventPublisher.publishEvent(new MovimientoVehiculo(parqueadero.getId(), placaNormalizada, fechaIngreso, true));
+            log.info("Ingreso anotado en el diario de la puerta con ID: {}", vehiculoId);
+            return IngresoResponse.builder()
+                    .id(vehiculoId)
+                    .build();
+        }
+
         Vehiculo vehiculo = Vehiculo.builder()
                 .placa(placaNormalizada)
-                .parqueadero(parqueadero)
-                .fechaIngreso(LocalDateTime.now())
+                .placaCodigo(placaCodigo)
+                .parqueadero(parqueaderoRepository.getReferenceById(parqueadero.getId()))
+                .fechaIngreso(fechaIngreso)
                 .activo(true)
                 .build();
 
-        Vehiculo vehiculoGuardado = vehiculoRepository.save(vehiculo);
+        Vehiculo vehiculoGuardado;
+        try {
+            vehiculoGuardado = vehiculoRepository.save(vehiculo);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("La restricción única rechazó el ingreso duplicado de la placa {}", placaNormalizada);
+            throw new BadRequestException(
+                    "No se puede Registrar Ingreso, ya existe la placa en este u otro parqueadero");
+        }
+        placasActivasService.confirmarIngreso(placaCodigo, reserva, vehiculoGuardado.getId());
+        eventPublisher.publishEvent(new MovimientoVehiculo(parqueadero.getId(), placaNormalizada, fechaIngreso, true));
 
         log.info("Ingreso registrado exitosamente con ID: {} (Ocupación: {}/{})",
-                vehiculoGuardado.getId(), vehiculosActuales + 1, parqueadero.getCapacidadMaxima());
+                vehiculoGuardado.getId(), ocupacionService.obtenerOcupacion(parqueadero.getId()),
+                parqueadero.getCapacidadMaxima());
 
         return IngresoResponse.builder()
                 .id(vehiculoGuardado.getId())
                 .build();
     }
 
-    @Transactional
     public SalidaResponse registrarSalida(SalidaRequest request) {
+        return transaccionPuerta().execute(status -> procesarSalida(request));
+    }
+
+    // Con el diario de la puerta el evento queda confirmado al llegar a disco, así que no se abre una transacción
+    // ni se toma una conexión del pool: SUPPORTS solo activa la sincronización, con la que las reservas en memoria
+    // se deshacen si algo falla antes de anexar. Tras anexar solo quedan cambios en memoria, que no fallan, así que
+    // el diario nunca conserva un evento que la portería rechazó.
+    private TransactionTemplate transaccionPuerta() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        if (diarioPuertaService.isPresent()) {
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+        }
+        return transactionTemplate;
+    }
+
+    private SalidaResponse procesarSalida(SalidaRequest request) {
         log.info("Registrando salida de vehículo con placa: {} del parqueadero ID: {}",
                 request.getPlaca(), request.getParqueaderoId());
 
-        String placaNormalizada = PlacaValidator.normalizarYValidarPlaca(request.getPlaca());
+        long placaCodigo = PlacaCodec.codificar(request.getPlaca());
+        String placaNormalizada = PlacaCodec.decodificar(placaCodigo);
+
+        if (diarioPuertaService.isPresent()) {
+            return registrarSalidaEnDiario(diarioPuertaService.get(), request, placaCodigo, placaNormalizada);
+        }
 
-        Vehiculo vehiculo = vehiculoRepository.findByPlacaAndParqueaderoIdAndFechaSalidaIsNull(
-                placaNormalizada, request.getParqueaderoId())
+        PlacasActivasService.UbicacionVehiculo ubicacion = placasActivasService
+                .reservarSalida(placaCodigo, request.getParqueaderoId())
                 .orElseThrow(() -> {
                     log.warn("Intento de registrar salida de placa {} que no está en el parqueadero ID: {}",
                             placaNormalizada, request.getParqueaderoId());
@@ -104,24 +200,278 @@ public class VehiculoService {
                             "No se puede Registrar Salida, no existe la placa en el parqueadero");
                 });
 
-        LocalDateTime fechaSalida = LocalDateTime.now();
+        LocalDateTime fechaSalida = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        BigDecimal tarifaPorHora = parqueaderoCacheService.obtenerExistente(ubicacion.parqueaderoId()).getCostoPorHora();
 
-        VehiculoHistorial historial = VehiculoHistorial.builder()
-                .placa(vehiculo.getPlaca())
-                .parqueadero(vehiculo.getParqueadero())
-                .fechaIngreso(vehiculo.getFechaIngreso())
-                .fechaSalida(fechaSalida)
-                .build();
+        // Mueve el vehículo al historial, con estadísticas y ganancias, en una sola sentencia
+        List<Object[]> movido = vehiculoRepository.moverAHistorial(
+                placaCodigo, ubicacion.parqueaderoId(), fechaSalida, tarifaPorHora);
+        if (movido.isEmpty()) {
+            placasActivasService.descartar(placaCodigo, ubicacion);
+            throw new BadRequestException("No se puede Registrar Salida, no existe la placa en el parqueadero");
+        }
 
-        vehiculoHistorialRepository.save(historial);
-        log.info("Registro movido al historial con ID: {}", historial.getId());
+        Long historialId = ((Number) movido.get(0)[0]).longValue();
+        BigDecimal costo = (BigDecimal) movido.get(0)[1];
+        log.info("Registro movido al historial con ID: {} (Cobro: {})", historialId, costo);
 
-        vehiculoRepository.delete(vehiculo);
+        frecuenciaVehiculosService.registrarSalida(ubicacion.parqueaderoId(), placaCodigo);
+        ocupacionService.liberarAlConfirmar(ubicacion.parqueaderoId());
+        eventPublisher.publishEvent(new MovimientoVehiculo(ubicacion.parqueaderoId(), placaNormalizada, fechaSalida, false));
 
         log.info("Salida registrada exitosamente para vehículo con placa: {}", placaNormalizada);
 
         return SalidaResponse.builder()
                 .mensaje("Salida registrada")
+                .costo(costo)
+                .build();
+    }
+
+    // El cobro se calcula en Java con la fecha de ingreso que guarda el índice en memoria;
+    // el aplicador del diario lo recalcula en SQL con la misma fórmula al mover el registro al historial
+    private SalidaResponse registrarSalidaEnDiario(DiarioPuertaService diario, SalidaRequest request,
+                                                   long placaCodigo, String placaNormalizada) {
+        LocalDateTime fechaSalida = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        BigDecimal tarifaPorHora = parqueaderoCacheService.obtenerExistente(request.getParqueaderoId()).getCostoPorHora();
+
+        PlacasActivasService.UbicacionVehiculo ubicacion = diario
+                .registrarSalida(placaCodigo, request.getParqueaderoId(), fechaSalida, tarifaPorHora)
+                .orElseThrow(() -> {
+                    log.warn("Intento de registrar salida de placa {} que no está en el parqueadero ID: {}",
+                            placaNormalizada, request.getParqueaderoId());
+                    return new BadRequestException(
+                            "No se puede Registrar Salida, no existe la placa en el parqueadero");
+                });
+
+        BigDecimal costo = calcularCostoEstadia(ubicacion.fechaIngreso(), fechaSalida, tarifaPorHora);
+        frecuenciaVehiculosService.registrarSalida(ubicacion.parqueaderoId(), placaCodigo);
+        ocupacionService.liberarAlConfirmar(ubicacion.parqueaderoId());
+        eventPublisher.publishEvent(new MovimientoVehiculo(ubicacion.parqueaderoId(), placaNormalizada, fechaSalida, false));
+
+        log.info("Salida anotada en el diario de la puerta para vehículo con placa: {} (Cobro: {})",
+                placaNormalizada, costo);
+
+        return SalidaResponse.builder()
+                .mensaje("Salida registrada")
+                .costo(costo)
+                .build();
+    }
+
+    @Transactional
+    public ResultadoLoteResponse registrarIngresosEnLote(IngresoLoteRequest request) {
+        List<IngresoRequest> ingresos = request.getIngresos();
+        log.info("Registrando lote de {} ingresos", ingresos.size());
+
+        Map<Long, ParqueaderoSnapshot> parqueaderos = parqueaderoCacheService.obtenerTodos(ingresos.stream()
+                .filter(Objects::nonNull)
+                .map(IngresoRequest::getParqueaderoId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        ResultadoLoteResponse.Item[] resultados = new ResultadoLoteResponse.Item[ingresos.size()];
+        List<Integer> indicesAceptados = new ArrayList<>();
+        List<Vehiculo> vehiculos = new ArrayList<>();
+        List<PlacasActivasService.UbicacionVehiculo> reservas = new ArrayList<>();
+        LocalDateTime fechaIngreso = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+        for (int i = 0; i < ingresos.size(); i++) {
+            IngresoRequest ingreso = ingresos.get(i);
+            if (ingreso == null) {
+                resultados[i] = itemFallido(i, null, null, "El ingreso no puede ser nulo");
+                continue;
+            }
+            try {
+                long placaCodigo = PlacaCodec.codificar(ingreso.getPlaca());
+                ParqueaderoSnapshot parqueadero = validarParqueaderoParaIngreso(ingreso.getParqueaderoId(), parqueaderos);
+
+                PlacasActivasService.UbicacionVehiculo reserva = placasActivasService
+                        .reservarIngreso(placaCodigo, parqueadero.getId(), fechaIngreso)
+                        .orElseThrow(() -> new BadRequestException(
+                                "No se puede Registrar Ingreso, ya existe la placa en este u otro parqueadero"));
+
+                if (!ocupacionService.reservar(parqueadero.getId(), parqueadero.getCapacidadMaxima())) {
+                    placasActivasService.cancelarIngreso(placaCodigo, reserva);
+                    throw new BadRequestException(
+                            "No se puede Registrar Ingreso, el parqueadero ha alcanzado su capacidad máxima (" +
+                                    ocupacionService.obtenerOcupacion(parqueadero.getId()) + "/" +
+                                    parqueadero.getCapacidadMaxima() + ")");
+                }
+
+                indicesAceptados.add(i);
+                reservas.add(reserva);
+                vehiculos.add(Vehiculo.builder()
+                        .placa(PlacaCodec.decodificar(placaCodigo))
+                        .placaCodigo(placaCodigo)
+                        .parqueadero(parqueaderoRepository.getReferenceById(parqueadero.getId()))
+                        .fechaIngreso(fechaIngreso)
+                        .activo(true)
+                        .build());
+            } catch (BadRequestException e) {
+                resultados[i] = itemFallido(i, ingreso.getPlaca(), ingreso.getParqueaderoId(), e.getMessage());
+            }
+        }
+
+        // Con el diario activo, las salidas ya confirmadas deben llegar a la tabla antes de insertar
+        diarioPuertaService.ifPresent(DiarioPuertaService::vaciar);
+
+        if (!vehiculos.isEmpty()) {
+            List<Long> ids = vehiculoLoteRepository.insertarVehiculos(vehiculos);
+            for (int j = 0; j < vehiculos.size(); j++) {
+                Vehiculo vehiculo = vehiculos.get(j);
+                placasActivasService.confirmarIngreso(vehiculo.getPlacaCodigo(), reservas.get(j), ids.get(j));
+                eventPublisher.publishEvent(new MovimientoVehiculo(
+                        vehiculo.getParqueadero().getId(), vehiculo.getPlaca(), fechaIngreso, true));
+                resultados[indicesAceptados.get(j)] = ResultadoLoteResponse.Item.builder()
+                        .indice(indicesAceptados.get(j))
+                        .placa(vehiculo.getPlaca())
+                        .parqueaderoId(vehiculo.getParqueadero().getId())
+                        .exitoso(true)
+                        .id(ids.get(j))
+                        .mensaje("Ingreso registrado")
+                        .build();
+            }
+        }
+
+        return construirResultadoLote(resultados, vehiculos.size());
+    }
+
+    @Transactional
+    public ResultadoLoteResponse registrarSalidasEnLote(SalidaLoteRequest request) {
+        List<SalidaRequest> salidas = request.getSalidas();
+        log.info("Registrando lote de {} salidas", salidas.size());
+
+        ResultadoLoteResponse.Item[] resultados = new ResultadoLoteResponse.Item[salidas.size()];
+        List<Integer> indicesAceptados = new ArrayList<>();
+        List<Long> placasCodigo = new ArrayList<>();
+        List<PlacasActivasService.UbicacionVehiculo> ubicaciones = new ArrayList<>();
+
+        for (int i = 0; i < salidas.size(); i++) {
+            SalidaRequest salida = salidas.get(i);
+            if (salida == null) {
+                resultados[i] = itemFallido(i, null, null, "La salida no puede ser nula");
+                continue;
+            }
+            try {
+                long placaCodigo = PlacaCodec.codificar(salida.getPlaca());
+                PlacasActivasService.UbicacionVehiculo ubicacion = placasActivasService
+                        .reservarSalida(placaCodigo, salida.getParqueaderoId())
+                        .orElseThrow(() -> new BadRequestException(
+                                "No se puede Registrar Salida, no existe la placa en el parqueadero"));
+
+                indicesAceptados.add(i);
+                placasCodigo.add(placaCodigo);
+                ubicaciones.add(ubicacion);
+            } catch (BadRequestException e) {
+                resultados[i] = itemFallido(i, salida.getPlaca(), salida.getParqueaderoId(), e.getMessage());
+            }
+        }
+
+        // Con el diario activo, los ingresos ya confirmados deben llegar a la tabla antes de leerla
+        diarioPuertaService.ifPresent(DiarioPuertaService::vaciar);
+
+        Map<Long, Vehiculo> vehiculos = vehiculoRepository.findAllById(ubicaciones.stream()
+                        .map(PlacasActivasService.UbicacionVehiculo::vehiculoId)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Vehiculo::getId, Function.identity()));
+
+        LocalDateTime fechaSalida = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<VehiculoHistorial> historial = new ArrayList<>();
+        List<Long> idsEliminados = new ArrayList<>();
+
+        for (int j = 0; j < ubicaciones.size(); j++) {
+            int indice = indicesAceptados.get(j);
+            PlacasActivasService.UbicacionVehiculo ubicacion = ubicaciones.get(j);
+            Vehiculo vehiculo = vehiculos.get(ubicacion.vehiculoId());
+
+            if (vehiculo == null) {
+                placasActivasService.descartar(placasCodigo.get(j), ubicacion);
+                resultados[indice] = itemFallido(indice, salidas.get(indice).getPlaca(), ubicacion.parqueaderoId(),
+                        "No se puede Registrar Salida, no existe la placa en el parqueadero");
+                continue;
+            }
+
+            BigDecimal tarifaPorHora = parqueaderoCacheService.obtenerExistente(ubicacion.parqueaderoId()).getCostoPorHora();
+            historial.add(VehiculoHistorial.builder()
+                    .placa(vehiculo.getPlaca())
+                    .placaCodigo(placasCodigo.get(j))
+                    .parqueadero(vehiculo.getParqueadero())
+                    .fechaIngreso(vehiculo.getFechaIngreso())
+                    .fechaSalida(fechaSalida)
+                    .costo(calcularCostoEstadia(vehiculo.getFechaIngreso(), fechaSalida, tarifaPorHora))
+                    .tarifaPorHora(tarifaPorHora)
+                    .build());
+            idsEliminados.add(vehiculo.getId());
+            ocupacionService.liberarAlConfirmar(ubicacion.parqueaderoId());
+            frecuenciaVehiculosService.registrarSalida(ubicacion.parqueaderoId(), placasCodigo.get(j));
+            eventPublisher.publishEvent(new MovimientoVehiculo(
+                    ubicacion.parqueaderoId(), vehiculo.getPlaca(), fechaSalida, false));
+
+            resultados[indice] = ResultadoLoteResponse.Item.builder()
+                    .indice(indice)
+                    .placa(vehiculo.getPlaca())
+                    .parqueaderoId(ubicacion.parqueaderoId())
+                    .exitoso(true)
+                    .id(vehiculo.getId())
+                    .mensaje("Salida registrada")
+                    .build();
+        }
+
+        if (!historial.isEmpty()) {
+            vehiculoLoteRepository.insertarHistorial(historial);
+            estadisticasPlacaService.registrarLote(historial);
+            vehiculoRepository.deleteAllByIdInBatch(idsEliminados);
+
+            // Todas las salidas del lote comparten fecha, basta un acumulado por parqueadero
+            historial.stream()
+                    .collect(Collectors.groupingBy(registro -> registro.getParqueadero().getId()))
+                    .forEach((parqueaderoId, registros) -> registroGananciasService.registrar(
+                            parqueaderoId,
+                            fechaSalida.toLocalDate(),
+                            registros.stream()
+                                    .map(VehiculoHistorial::getCosto)
+                                    .reduce(BigDecimal.ZERO, BigDecimal::add),
+                            registros.size()));
+        }
+
+        return construirResultadoLote(resultados, historial.size());
+    }
+
+    private ParqueaderoSnapshot validarParqueaderoParaIngreso(Long parqueaderoId,
+                                                             Map<Long, ParqueaderoSnapshot> parqueaderos) {
+        if (parqueaderoId == null) {
+            throw new BadRequestException("El ID del parqueadero es obligatorio");
+        }
+
+        ParqueaderoSnapshot parqueadero = parqueaderos.get(parqueaderoId);
+        if (parqueadero == null) {
+            throw new BadRequestException("El parqueadero con ID " + parqueaderoId + " no existe");
+        }
+
+        if (!parqueadero.getActivo()) {
+            throw new BadRequestException("El parqueadero no está activo");
+        }
+        return parqueadero;
+    }
+
+    private ResultadoLoteResponse.Item itemFallido(int indice, String placa, Long parqueaderoId, String mensaje) {
+        return ResultadoLoteResponse.Item.builder()
+                .indice(indice)
+                .placa(placa)
+                .parqueaderoId(parqueaderoId)
+                .exitoso(false)
+                .mensaje(mensaje)
+                .build();
+    }
+
+    private ResultadoLoteResponse construirResultadoLote(ResultadoLoteResponse.Item[] resultados, int exitosos) {
+        log.info("Lote procesado: {} exitosos, {} fallidos", exitosos, resultados.length - exitosos);
+
+        return ResultadoLoteResponse.builder()
+                .totalProcesados(resultados.length)
+                .exitosos(exitosos)
+                .fallidos(resultados.length - exitosos)
+                .resultados(List.of(resultados))
                 .build();
     }
 
@@ -129,37 +479,102 @@ public class VehiculoService {
     public List<VehiculoResponse> listarVehiculosEnParqueadero(Long parqueaderoId) {
         log.info("Listando vehículos actualmente en el parqueadero ID: {}", parqueaderoId);
 
-        Parqueadero parqueadero = parqueaderoRepository.findById(parqueaderoId)
-                .orElseThrow(() -> new BadRequestException(
-                        "El parqueadero con ID " + parqueaderoId + " no existe"));
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(parqueaderoId);
 
-        List<Vehiculo> vehiculos = vehiculoRepository.findAllByParqueaderoIdAndFechaSalidaIsNull(parqueaderoId);
+        List<VehiculoResponse> vehiculos = aVehiculosResponse(
+                vehiculoRepository.findActivosByParqueaderoId(parqueaderoId, Limit.unlimited()), parqueadero);
 
         log.info("Se encontraron {} vehículos en el parqueadero ID: {}", vehiculos.size(), parqueaderoId);
 
-        return vehiculos.stream()
-                .map(vehiculo -> VehiculoResponse.builder()
-                        .id(vehiculo.getId())
-                        .placa(vehiculo.getPlaca())
-                        .fechaIngreso(vehiculo.getFechaIngreso())
-                        .parqueaderoId(vehiculo.getParqueadero().getId())
-                        .parqueaderoNombre(vehiculo.getParqueadero().getNombre())
-                        .build())
-                .collect(Collectors.toList());
+        return vehiculos;
     }
 
     @Transactional(readOnly = true)
-    public List<TopVehiculoResponse> obtenerTop10VehiculosMasFrecuentes() {
-        log.info("Obteniendo los 10 vehículos más frecuentes");
+    public PaginaResponse<VehiculoResponse> listarVehiculosEnParqueaderoPaginado(Long parqueaderoId, String cursor,
+                                                                                 Integer limite) {
+        int tamanoPagina = limite != null ? limite : LIMITE_PAGINA_POR_DEFECTO;
+        if (tamanoPagina < 1 || tamanoPagina > LIMITE_PAGINA_MAXIMO) {
+            throw new BadRequestException("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
 
-        List<Object[]> resultados = vehiculoHistorialRepository.findTop10VehiculosMasFrecuentes();
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        // Se pide un registro extra solo para saber si existe una página siguiente
+        Limit limit = Limit.of(tamanoPagina + 1);
+        List<Object[]> filas;
+        if (cursor == null || cursor.isBlank()) {
+            filas = vehiculoRepository.findActivosByParqueaderoId(parqueaderoId, limit);
+        } else {
+            CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(cursor);
+            filas = vehiculoRepository.findActivosByParqueaderoIdAntesDe(
+                    parqueaderoId, posicion.fecha(), posicion.id(), limit);
+        }
 
-        List<TopVehiculoResponse> topVehiculos = resultados.stream()
-                .map(result -> TopVehiculoResponse.builder()
-                        .placa((String) result[0])
-                        .cantidadRegistros((Long) result[1])
-                        .build())
+        boolean hayMas = filas.size() > tamanoPagina;
+        List<VehiculoResponse> vehiculos = aVehiculosResponse(hayMas ? filas.subList(0, tamanoPagina) : filas, parqueadero);
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            VehiculoResponse ultimo = vehiculos.get(vehiculos.size() - 1);
+            siguienteCursor = CursorPaginacion.codificar(ultimo.getFechaIngreso(), ultimo.getId());
+        }
+
+        return PaginaResponse.<VehiculoResponse>builder()
+                .items(vehiculos)
+                .cantidad(vehiculos.size())
+                .hayMas(hayMas)
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    // Valida el parqueadero de inmediato y devuelve un cuerpo que escribe los vehículos como NDJSON
+    public StreamingResponseBody exportarVehiculosEnParqueadero(Long parqueaderoId) {
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        return limiteExportacionesService.limitar(salida -> {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+
+            Integer total = transactionTemplate.execute(status -> {
+                try (Stream<Object[]> filas = vehiculoRepository.streamActivosByParqueaderoId(parqueaderoId)) {
+                    return EscritorNdjson.escribir(filas.map(fila -> aVehiculoResponse(fila, parqueadero)),
+                            salida, objectMapper);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            log.info("Exportados {} vehículos del parqueadero ID: {}", total, parqueaderoId);
+        });
+    }
+
+    private List<VehiculoResponse> aVehiculosResponse(List<Object[]> filas, ParqueaderoSnapshot parqueadero) {
+        return filas.stream()
+                .map(fila -> aVehiculoResponse(fila, parqueadero))
                 .collect(Collectors.toList());
+    }
+
+    // El parqueadero se resuelve una sola vez por respuesta, no por fila
+    private VehiculoResponse aVehiculoResponse(Object[] fila, ParqueaderoSnapshot parqueadero) {
+        return VehiculoResponse.builder()
+                .id((Long) fila[0])
+                .placa((String) fila[1])
+                .fechaIngreso((LocalDateTime) fila[2])
+                .parqueaderoId(parqueadero.getId())
+                .parqueaderoNombre(parqueadero.getNombre())
+                .build();
+    }
+
+    // Sin ventana se responde desde los contadores en memoria; con ventana de días se agrupa solo ese rango
+    @Transactional(readOnly = true)
+    public List<TopVehiculoResponse> obtenerVehiculosMasFrecuentes(Integer limite, Integer dias) {
+        int n = validarLimiteRanking(limite);
+        log.info("Obteniendo los {} vehículos más frecuentes", n);
+
+        List<TopVehiculoResponse> topVehiculos = dias == null
+                ? frecuenciaVehiculosService.obtenerMasFrecuentes(n)
+                : aTopVehiculos(vehiculoHistorialRepository.findVehiculosMasFrecuentesDesde(
+                        inicioVentana(dias), Limit.of(n)));
 
         log.info("Se encontraron {} vehículos en el ranking", topVehiculos.size());
 
@@ -167,26 +582,46 @@ public class VehiculoService {
     }
 
     @Transactional(readOnly = true)
-    public List<TopVehiculoResponse> obtenerTop10VehiculosMasFrecuentesPorParqueadero(Long parqueaderoId) {
-        log.info("Obteniendo los 10 vehículos más frecuentes del parqueadero ID: {}", parqueaderoId);
+    public List<TopVehiculoResponse> obtenerVehiculosMasFrecuentesPorParqueadero(Long parqueaderoId, Integer limite,
+                                                                                Integer dias) {
+        int n = validarLimiteRanking(limite);
+        log.info("Obteniendo los {} vehículos más frecuentes del parqueadero ID: {}", n, parqueaderoId);
 
         // Validar que el parqueadero exista
-        parqueaderoRepository.findById(parqueaderoId)
-                .orElseThrow(() -> new BadRequestException(
-                        "El parqueadero con ID " + parqueaderoId + " no existe"));
+        parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        List<TopVehiculoResponse> topVehiculos = dias == null
+                ? frecuenciaVehiculosService.obtenerMasFrecuentesPorParqueadero(parqueaderoId, n)
+                : aTopVehiculos(vehiculoHistorialRepository.findVehiculosMasFrecuentesByParqueaderoDesde(
+                        parqueaderoId, inicioVentana(dias), Limit.of(n)));
 
-        List<Object[]> resultados = vehiculoHistorialRepository.findTop10VehiculosMasFrecuentesByParqueadero(parqueaderoId);
+        log.info("Se encontraron {} vehículos en el ranking del parqueadero ID: {}", topVehiculos.size(), parqueaderoId);
+
+        return topVehiculos;
+    }
+
+    private int validarLimiteRanking(Integer limite) {
+        int n = limite != null ? limite : LIMITE_RANKING_POR_DEFECTO;
+        if (n < 1 || n > LIMITE_RANKING_MAXIMO) {
+            throw new BadRequestException("El límite del ranking debe estar entre 1 y " + LIMITE_RANKING_MAXIMO);
+        }
+        return n;
+    }
+
+    private LocalDateTime inicioVentana(int dias) {
+        if (dias < 1 || dias > MAXIMO_DIAS_SERIE) {
+            throw new BadRequestException("La ventana debe estar entre 1 y " + MAXIMO_DIAS_SERIE + " días");
+        }
+        return LocalDate.now().minusDays(dias - 1L).atStartOfDay();
+    }
 
-        List<TopVehiculoResponse> topVehiculos = resultados.stream()
+    private List<TopVehiculoResponse> aTopVehiculos(List<Object[]> resultados) {
+        return resultados.stream()
                 .map(result -> TopVehiculoResponse.builder()
                         .placa((String) result[0])
                         .cantidadRegistros((Long) result[1])
                         .build())
                 .collect(Collectors.toList());
-
-        log.info("Se encontraron {} vehículos en el ranking del parqueadero ID: {}", topVehiculos.size(), parqueaderoId);
-
-        return topVehiculos;
     }
 
     @Transactional(readOnly = true)
@@ -194,28 +629,11 @@ public class VehiculoService {
         log.info("Obteniendo vehículos que están por primera vez en el parqueadero ID: {}", parqueaderoId);
 
         // Validar que el parqueadero exista
-        parqueaderoRepository.findById(parqueaderoId)
-                .orElseThrow(() -> new BadRequestException(
-                        "El parqueadero con ID " + parqueaderoId + " no existe"));
-
-        // Obtener todos los vehículos actualmente en el parqueadero
-        List<Vehiculo> vehiculosActuales = vehiculoRepository.findAllByParqueaderoIdAndFechaSalidaIsNull(parqueaderoId);
-
-        // Filtrar solo los que son primera vez (no tienen historial en este parqueadero)
-        List<VehiculoPrimeraVezResponse> vehiculosPrimeraVez = vehiculosActuales.stream()
-                .map(vehiculo -> {
-                    boolean esPrimeraVez = !vehiculoHistorialRepository.existsByPlacaAndParqueaderoId(
-                            vehiculo.getPlaca(), parqueaderoId);
-
-                    return VehiculoPrimeraVezResponse.builder()
-                            .id(vehiculo.getId())
-                            .placa(vehiculo.getPlaca())
-                            .fechaIngreso(vehiculo.getFechaIngreso())
-                            .esPrimeraVez(esPrimeraVez)
-                            .build();
-                })
-                .filter(VehiculoPrimeraVezResponse::getEsPrimeraVez)
-                .collect(Collectors.toList());
+        parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        // Vehículos actuales sin registros previos en el historial de este parqueadero (una sola consulta)
+        List<VehiculoPrimeraVezResponse> vehiculosPrimeraVez = vehiculoRepository
+                .findPrimeraVezByParqueaderoId(parqueaderoId);
 
         log.info("Se encontraron {} vehículos por primera vez en el parqueadero ID: {}",
                 vehiculosPrimeraVez.size(), parqueaderoId);
@@ -225,63 +643,93 @@ public class VehiculoService {
 
     @Transactional(readOnly = true)
     public GananciasResponse obtenerGananciasHoy(Long parqueaderoId) {
-        LocalDateTime inicioHoy = LocalDate.now().atStartOfDay();
-        LocalDateTime finHoy = LocalDate.now().atTime(LocalTime.MAX);
-        return calcularGanancias(parqueaderoId, inicioHoy, finHoy, "Hoy");
+        LocalDate hoy = LocalDate.now();
+        return calcularGanancias(parqueaderoId, hoy, hoy, "Hoy");
     }
 
     @Transactional(readOnly = true)
     public GananciasResponse obtenerGananciasSemana(Long parqueaderoId) {
-        LocalDateTime inicioSemana = LocalDate.now().with(TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY)).atStartOfDay();
-        LocalDateTime finSemana = LocalDate.now().with(TemporalAdjusters.nextOrSame(java.time.DayOfWeek.SUNDAY)).atTime(LocalTime.MAX);
+        LocalDate inicioSemana = LocalDate.now().with(TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY));
+        LocalDate finSemana = LocalDate.now().with(TemporalAdjusters.nextOrSame(java.time.DayOfWeek.SUNDAY));
         return calcularGanancias(parqueaderoId, inicioSemana, finSemana, "Esta semana");
     }
 
     @Transactional(readOnly = true)
     public GananciasResponse obtenerGananciasMes(Long parqueaderoId) {
-        LocalDateTime inicioMes = LocalDate.now().with(TemporalAdjusters.firstDayOfMonth()).atStartOfDay();
-        LocalDateTime finMes = LocalDate.now().with(TemporalAdjusters.lastDayOfMonth()).atTime(LocalTime.MAX);
+        LocalDate inicioMes = LocalDate.now().with(TemporalAdjusters.firstDayOfMonth());
+        LocalDate finMes = LocalDate.now().with(TemporalAdjusters.lastDayOfMonth());
         return calcularGanancias(parqueaderoId, inicioMes, finMes, "Este mes");
     }
 
     @Transactional(readOnly = true)
     public GananciasResponse obtenerGananciasAnio(Long parqueaderoId) {
-        LocalDateTime inicioAnio = LocalDate.now().with(TemporalAdjusters.firstDayOfYear()).atStartOfDay();
-        LocalDateTime finAnio = LocalDate.now().with(TemporalAdjusters.lastDayOfYear()).atTime(LocalTime.MAX);
+        LocalDate inicioAnio = LocalDate.now().with(TemporalAdjusters.firstDayOfYear());
+        LocalDate finAnio = LocalDate.now().with(TemporalAdjusters.lastDayOfYear());
         return calcularGanancias(parqueaderoId, inicioAnio, finAnio, "Este año");
     }
 
-    private GananciasResponse calcularGanancias(Long parqueaderoId, LocalDateTime fechaInicio, LocalDateTime fechaFin, String periodo) {
+    @Transactional(readOnly = true)
+    public SerieGananciasResponse obtenerSerieGanancias(Long parqueaderoId, LocalDate desde, LocalDate hasta, String bucket) {
+        log.info("Calculando serie de ganancias del parqueadero ID: {} entre {} y {} por {}",
+                parqueaderoId, desde, hasta, bucket);
+
+        IntervaloGanancias intervalo = IntervaloGanancias.desdeParametro(bucket);
+
+        if (hasta.isBefore(desde)) {
+            throw new BadRequestException("La fecha final no puede ser anterior a la fecha inicial");
+        }
+
+        long dias = ChronoUnit.DAYS.between(desde, hasta) + 1;
+        long maximoDias = intervalo == IntervaloGanancias.HOUR ? MAXIMO_DIAS_SERIE_POR_HORA : MAXIMO_DIAS_SERIE;
+        if (dias > maximoDias) {
+            throw new BadRequestException(
+                    "El rango solicitado no puede superar " + maximoDias + " días para el intervalo " + bucket);
+        }
+
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        List<SerieGananciasResponse.Punto> puntos = registroGananciasService.serie(parqueaderoId, desde, hasta, intervalo);
+
+        return SerieGananciasResponse.builder()
+                .parqueaderoId(parqueadero.getId())
+                .parqueaderoNombre(parqueadero.getNombre())
+                .desde(desde)
+                .hasta(hasta)
+                .intervalo(intervalo.getParametro())
+                .totalGanancias(puntos.stream()
+                        .map(SerieGananciasResponse.Punto::getTotalGanancias)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .cantidadVehiculos(puntos.stream()
+                        .mapToLong(SerieGananciasResponse.Punto::getCantidadVehiculos)
+                        .sum())
+                .puntos(puntos)
+                .build();
+    }
+
+    private GananciasResponse calcularGanancias(Long parqueaderoId, LocalDate fechaInicio, LocalDate fechaFin, String periodo) {
         log.info("Calculando ganancias del parqueadero ID: {} para el periodo: {}", parqueaderoId, periodo);
 
         // Validar que el parqueadero exista
-        Parqueadero parqueadero = parqueaderoRepository.findById(parqueaderoId)
-                .orElseThrow(() -> new BadRequestException(
-                        "El parqueadero con ID " + parqueaderoId + " no existe"));
+        ParqueaderoSnapshot parqueadero = parqueaderoCacheService.obtenerExistente(parqueaderoId);
 
-        // Obtener registros del historial en el rango de fechas
-        List<VehiculoHistorial> registros = vehiculoHistorialRepository.findByParqueaderoIdAndFechaSalidaBetween(
-                parqueaderoId, fechaInicio, fechaFin);
-
-        // Calcular ganancias totales
-        BigDecimal totalGanancias = registros.stream()
-                .map(registro -> calcularCostoEstadia(registro, parqueadero.getCostoPorHora()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Periodos de días completos: se resuelve con una sola fila agregada del libro de ganancias
+        ResumenGanancias resumen = registroGananciasService.sumarIntervalo(
+                parqueaderoId, fechaInicio.atStartOfDay(), fechaFin.plusDays(1).atStartOfDay());
 
         log.info("Ganancias calculadas para {} en parqueadero ID {}: {} ({} vehículos)",
-                periodo, parqueaderoId, totalGanancias, registros.size());
+                periodo, parqueaderoId, resumen.getTotalGanancias(), resumen.getCantidadVehiculos());
 
         return GananciasResponse.builder()
                 .periodo(periodo)
-                .totalGanancias(totalGanancias)
-                .cantidadVehiculos((long) registros.size())
+                .totalGanancias(resumen.getTotalGanancias())
+                .cantidadVehiculos(resumen.getCantidadVehiculos())
                 .parqueaderoId(parqueadero.getId())
                 .parqueaderoNombre(parqueadero.getNombre())
                 .build();
     }
 
-    private BigDecimal calcularCostoEstadia(VehiculoHistorial registro, BigDecimal costoPorHora) {
-        Duration duracion = Duration.between(registro.getFechaIngreso(), registro.getFechaSalida());
+    private BigDecimal calcularCostoEstadia(LocalDateTime fechaIngreso, LocalDateTime fechaSalida, BigDecimal costoPorHora) {
+        Duration duracion = Duration.between(fechaIngreso, fechaSalida);
         long minutos = duracion.toMinutes();
 
         // Convertir minutos a horas (redondear hacia arriba)
@@ -292,6 +740,19 @@ public class VehiculoService {
         return costoPorHora.multiply(horas).setScale(2, RoundingMode.HALF_UP);
     }
 
+    @Transactional(readOnly = true)
+    public EstadisticaPlacaResponse obtenerEstadisticaPlaca(Long parqueaderoId, String placa) {
+        String placaNormalizada = PlacaCodec.decodificar(PlacaCodec.codificar(placa));
+        log.info("Obteniendo estadísticas de la placa {} en el parqueadero ID: {}", placaNormalizada, parqueaderoId);
+
+        // Validar que el parqueadero exista
+        parqueaderoCacheService.obtenerExistente(parqueaderoId);
+
+        return estadisticasPlacaService.obtener(parqueaderoId, placaNormalizada)
+                .orElseThrow(() -> new BadRequestException(
+                        "El vehículo con placa " + placaNormalizada + " no registra visitas en el parqueadero"));
+    }
+
     @Transactional(readOnly = true)
     public List<VehiculoResponse> buscarVehiculosPorPlaca(String searchTerm) {
         log.info("Buscando vehículos con placa que contenga: {}", searchTerm);
@@ -302,19 +763,32 @@ public class VehiculoService {
 
         String searchTermNormalizado = searchTerm.trim().toUpperCase();
 
-        List<Vehiculo> vehiculos = vehiculoRepository
-                .findByPlacaContainingIgnoreCaseAndFechaSalidaIsNull(searchTermNormalizado);
-
-        log.info("Se encontraron {} vehículos con placas que contienen '{}'", vehiculos.size(), searchTermNormalizado);
-
-        return vehiculos.stream()
-                .map(vehiculo -> VehiculoResponse.builder()
-                        .id(vehiculo.getId())
-                        .placa(vehiculo.getPlaca())
-                        .fechaIngreso(vehiculo.getFechaIngreso())
-                        .parqueaderoId(vehiculo.getParqueadero().getId())
-                        .parqueaderoNombre(vehiculo.getParqueadero().getNombre())
+        // Se resuelve con el índice de n-gramas de placas activas, sin consultar la tabla de vehículos
+        List<PlacasActivasService.CoincidenciaPlaca> coincidencias =
+                placasActivasService.buscarPorFragmento(searchTermNormalizado);
+
+        log.info("Se encontraron {} vehículos con placas que contienen '{}'", coincidencias.size(), searchTermNormalizado);
+
+        Map<Long, ParqueaderoSnapshot> parqueaderos = parqueaderoCacheService.obtenerTodos(coincidencias.stream()
+                .map(coincidencia -> coincidencia.ubicacion().parqueaderoId())
+                .collect(Collectors.toSet()));
+
+        return coincidencias.stream()
+                .sorted(Comparator.comparing(
+                        (PlacasActivasService.CoincidenciaPlaca coincidencia) -> coincidencia.ubicacion().fechaIngreso())
+                        .reversed())
+                .map(coincidencia -> VehiculoResponse.builder()
+                        .id(coincidencia.ubicacion().vehiculoId())
+                        .placa(coincidencia.placa())
+                        .fechaIngreso(coincidencia.ubicacion().fechaIngreso())
+                        .parqueaderoId(coincidencia.ubicacion().parqueaderoId())
+                        .parqueaderoNombre(nombreParqueadero(parqueaderos, coincidencia.ubicacion().parqueaderoId()))
                         .build())
                 .collect(Collectors.toList());
     }
+
+    private String nombreParqueadero(Map<Long, ParqueaderoSnapshot> parqueaderos, Long parqueaderoId) {
+        ParqueaderoSnapshot parqueadero = parqueaderos.get(parqueaderoId);
+        return parqueadero != null ? parqueadero.getNombre() : null;
+    }
 }
@@ -0,0 +1,73 @@
+package com.parkingLot.services;
+
+import com.parkingLot.exceptions.ServicioSaturadoException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ejecuta las verificaciones BCrypt en un pool acotado para que una ola de logins no ocupe
+// los hilos de Tomcat que atienden las porterías. Con el pool lleno se rechaza de inmediato.
+@Service
+@Slf4j
+public class VerificadorContrasenasService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+
+    public VerificadorContrasenasService(PasswordEncoder passwordEncoder,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${parking.seguridad.bcrypt.hilos:0}") int hilos,
+                                         @Value("${parking.seguridad.bcrypt.cola:200}") int capacidadCola) {
+        this.passwordEncoder = passwordEncoder;
+
+        // BCrypt es puramente de CPU: por defecto un hilo por núcleo
+        int tamanoPool = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                tamanoPool, tamanoPool,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "bcrypt-" + numeroHilo.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("parking.bcrypt.cola", executor, e -> e.getQueue().size())
+                .description("Verificaciones de contraseña en espera")
+                .register(meterRegistry);
+        Gauge.builder("parking.bcrypt.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Verificaciones de contraseña en ejecución")
+                .register(meterRegistry);
+        Gauge.builder("parking.bcrypt.cola.capacidad", executor, e -> e.getQueue().remainingCapacity())
+                .description("Espacio libre en la cola de verificaciones")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Boolean> verificar(String contrasena, String hash) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.matches(contrasena, hash), executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Verificación de contraseña rechazada: {} solicitudes en cola", executor.getQueue().size());
+            throw new ServicioSaturadoException(
+                    "El servicio de autenticación está saturado, intente de nuevo en unos segundos");
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdown();
+    }
+}
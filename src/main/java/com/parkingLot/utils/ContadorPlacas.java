@@ -0,0 +1,144 @@
+package com.parkingLot.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Mapa compacto placa_codigo -> cantidad con direccionamiento abierto sobre arreglos primitivos.
+// Evita un objeto Long y un nodo por placa; las lecturas comparten el candado y las escrituras lo toman en exclusiva.
+public class ContadorPlacas {
+
+    private static final long VACIO = -1L;
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    private long[] claves;
+    private int[] valores;
+    private int tamano;
+
+    public record Entrada(long placaCodigo, int cantidad) {
+    }
+
+    public ContadorPlacas() {
+        claves = new long[CAPACIDAD_INICIAL];
+        valores = new int[CAPACIDAD_INICIAL];
+        Arrays.fill(claves, VACIO);
+    }
+
+    // Suma delta al contador de la placa; un contador que llega a cero se conserva con valor cero
+    public void sumar(long placaCodigo, int delta) {
+        candado.writeLock().lock();
+        try {
+            if ((tamano + 1) * 4 > claves.length * 3) {
+                redimensionar(claves.length * 2);
+            }
+
+            int posicion = buscarPosicion(claves, placaCodigo);
+            if (claves[posicion] == VACIO) {
+                claves[posicion] = placaCodigo;
+                tamano++;
+            }
+            valores[posicion] = Math.max(valores[posicion] + delta, 0);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public int obtener(long placaCodigo) {
+        candado.readLock().lock();
+        try {
+            int posicion = buscarPosicion(claves, placaCodigo);
+            return claves[posicion] == VACIO ? 0 : valores[posicion];
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        candado.readLock().lock();
+        try {
+            return tamano;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Las n placas con más registros, de mayor a menor; los empates se ordenan por código de placa
+    public List<Entrada> mayores(int n) {
+        Comparator<Entrada> orden = Comparator.comparingInt(Entrada::cantidad)
+                .thenComparing(Comparator.comparingLong(Entrada::placaCodigo).reversed());
+        PriorityQueue<Entrada> monticulo = new PriorityQueue<>(n + 1, orden);
+
+        candado.readLock().lock();
+        try {
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i] == VACIO || valores[i] == 0) {
+                    continue;
+                }
+                if (monticulo.size() < n) {
+                    monticulo.add(new Entrada(claves[i], valores[i]));
+                } else if (orden.compare(new Entrada(claves[i], valores[i]), monticulo.peek()) > 0) {
+                    monticulo.poll();
+                    monticulo.add(new Entrada(claves[i], valores[i]));
+                }
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+
+        List<Entrada> resultado = new ArrayList<>(monticulo);
+        resultado.sort(orden.reversed());
+        return resultado;
+    }
+
+    public List<Entrada> entradas() {
+        candado.readLock().lock();
+        try {
+            List<Entrada> entradas = new ArrayList<>(tamano);
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i] != VACIO && valores[i] > 0) {
+                    entradas.add(new Entrada(claves[i], valores[i]));
+                }
+            }
+            return entradas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private void redimensionar(int capacidad) {
+        long[] clavesAnteriores = claves;
+        int[] valoresAnteriores = valores;
+
+        claves = new long[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(claves, VACIO);
+
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (clavesAnteriores[i] != VACIO) {
+                int posicion = buscarPosicion(claves, clavesAnteriores[i]);
+                claves[posicion] = clavesAnteriores[i];
+                valores[posicion] = valoresAnteriores[i];
+            }
+        }
+    }
+
+    // Sondeo lineal; la capacidad siempre es potencia de dos y la tabla nunca se llena más del 75 %
+    private static int buscarPosicion(long[] tabla, long clave) {
+        int mascara = tabla.length - 1;
+        int posicion = mezclar(clave) & mascara;
+        while (tabla[posicion] != VACIO && tabla[posicion] != clave) {
+            posicion = (posicion + 1) & mascara;
+        }
+        return posicion;
+    }
+
+    private static int mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,37 @@
+package com.parkingLot.utils;
+
+import com.parkingLot.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Cursor opaco para paginación por keyset: codifica la fecha y el ID del último registro entregado
+public final class CursorPaginacion {
+
+    private static final char SEPARADOR = '|';
+
+    private CursorPaginacion() {
+    }
+
+    public record Posicion(LocalDateTime fecha, Long id) {
+    }
+
+    public static String codificar(LocalDateTime fecha, Long id) {
+        String valor = fecha.toString() + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Posicion decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            return new Posicion(
+                    LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new BadRequestException("El cursor de paginación no es válido");
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.parkingLot.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Diario de eventos de solo anexado sobre segmentos de archivo mapeados en memoria.
+// Los registros tienen tamaño fijo, así la posición de cada secuencia dentro de su segmento se calcula directamente.
+// Quien anexa espera a que su registro llegue a disco; un único hilo hace force() por todos los registros
+// acumulados mientras tanto (group commit), de modo que el costo del fsync se reparte entre los escritores.
+public final class DiarioEventos implements AutoCloseable {
+
+    public enum Tipo {
+        INGRESO, SALIDA
+    }
+
+    // tarifaPorHora solo aplica a las salidas
+    public record Evento(long secuencia, Tipo tipo, long vehiculoId, long placaCodigo, long parqueaderoId,
+                         LocalDateTime fecha, BigDecimal tarifaPorHora) {
+    }
+
+    // [longitud int][crc32c int] + cuerpo: [tipo byte][secuencia long][vehiculoId long][placaCodigo long]
+    // [parqueaderoId long][fecha en microsegundos long][tarifa sin escala long][escala de la tarifa int]
+    private static final int CUERPO = 1 + 6 * Long.BYTES + Integer.BYTES;
+    private static final int REGISTRO = 2 * Integer.BYTES + CUERPO;
+    private static final String PREFIJO_SEGMENTO = "segmento-";
+    private static final String EXTENSION_SEGMENTO = ".log";
+
+    private final Path directorio;
+    private final int registrosPorSegmento;
+
+    // Segmentos vivos por primera secuencia; el último es el que recibe escrituras
+    private final ConcurrentSkipListMap<Long, Segmento> segmentos = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayPendientes = lock.newCondition();
+    private final Condition persistido = lock.newCondition();
+    private final Thread hiloPersistencia;
+
+    private Segmento actual;
+    private long ultimaEscrita;
+    private long ultimaPersistida;
+    private RuntimeException falla;
+    private boolean cerrado;
+
+    private static final class Segmento {
+        private final Path archivo;
+        private final long primeraSecuencia;
+        private final FileChannel canal;
+        private final MappedByteBuffer buffer;
+        private final int capacidad;
+        private long ultimaSecuencia;
+        // Bytes ya forzados a disco desde el inicio del segmento
+        private int persistidoHasta;
+
+        private Segmento(Path archivo, long primeraSecuencia, FileChannel canal, MappedByteBuffer buffer) {
+            this.archivo = archivo;
+            this.primeraSecuencia = primeraSecuencia;
+            this.canal = canal;
+            this.buffer = buffer;
+            this.capacidad = buffer.capacity() / REGISTRO;
+            this.ultimaSecuencia = primeraSecuencia - 1;
+        }
+
+        private int registros() {
+            return (int) (ultimaSecuencia - primeraSecuencia + 1);
+        }
+
+        private boolean lleno() {
+            return registros() >= capacidad;
+        }
+
+        private int bytesEscritos() {
+            return registros() * REGISTRO;
+        }
+    }
+
+    private DiarioEventos(Path directorio, int tamanoSegmento) {
+        this.directorio = directorio;
+        this.registrosPorSegmento = tamanoSegmento / REGISTRO;
+        if (registrosPorSegmento < 1) {
+            throw new IllegalArgumentException("El tamaño de segmento debe ser de al menos " + REGISTRO + " bytes");
+        }
+        this.hiloPersistencia = new Thread(this::persistirEnGrupo, "diario-eventos-persistencia");
+        this.hiloPersistencia.setDaemon(true);
+    }
+
+    // Abre el diario recuperando los segmentos existentes. Los registros hasta ultimaAplicada ya están
+    // en la base de datos; la cola de un registro incompleto (caída a mitad de escritura) se descarta.
+    public static DiarioEventos abrir(Path directorio, int tamanoSegmento, long ultimaAplicada) throws IOException {
+        DiarioEventos diario = new DiarioEventos(directorio, tamanoSegmento);
+        diario.recuperar(ultimaAplicada);
+        diario.hiloPersistencia.start();
+        return diario;
+    }
+
+    // Escribe el evento en el segmento actual y devuelve su secuencia, sin esperar a que llegue a disco
+    public long anexar(Tipo tipo, long vehiculoId, long placaCodigo, long parqueaderoId,
+                       LocalDateTime fecha, BigDecimal tarifaPorHora) {
+        lock.lock();
+        try {
+            verificarDisponible();
+            if (actual.lleno()) {
+                rotar();
+            }
+
+            long secuencia = ultimaEscrita + 1;
+            escribir(actual, new Evento(secuencia, tipo, vehiculoId, placaCodigo, parqueaderoId, fecha, tarifaPorHora));
+            actual.ultimaSecuencia = secuencia;
+            ultimaEscrita = secuencia;
+            hayPendientes.signal();
+            return secuencia;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Bloquea hasta que la secuencia esté en disco
+    public void esperarPersistencia(long secuencia) {
+        lock.lock();
+        try {
+            while (ultimaPersistida < secuencia) {
+                verificarDisponible();
+                persistido.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hasta maximo eventos persistidos posteriores a la secuencia indicada, en orden
+    public List<Evento> leer(long despuesDe, int maximo) {
+        long limite;
+        lock.lock();
+        try {
+            limite = Math.min(ultimaPersistida, despuesDe + maximo);
+        } finally {
+            lock.unlock();
+        }
+
+        List<Evento> eventos = new ArrayList<>((int) Math.max(0, limite - despuesDe));
+        for (long secuencia = despuesDe + 1; secuencia <= limite; secuencia++) {
+            Map.Entry<Long, Segmento> entrada = segmentos.floorEntry(secuencia);
+            Evento evento = entrada != null ? leerRegistro(entrada.getValue(), secuencia) : null;
+            if (evento == null) {
+                throw new IllegalStateException("El diario de eventos no contiene la secuencia " + secuencia);
+            }
+            eventos.add(evento);
+        }
+        return eventos;
+    }
+
+    // Borra los segmentos cerrados cuyos eventos ya están todos aplicados
+    public void descartarHasta(long secuencia) {
+        lock.lock();
+        try {
+            for (Segmento segmento : segmentos.values()) {
+                if (segmento == actual || segmento.ultimaSecuencia > secuencia) {
+                    break;
+                }
+                segmentos.remove(segmento.primeraSecuencia);
+                cerrarSegmento(segmento);
+                Files.deleteIfExists(segmento.archivo);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long ultimaPersistida() {
+        lock.lock();
+        try {
+            return ultimaPersistida;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            cerrado = true;
+            hayPendientes.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            hiloPersistencia.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        lock.lock();
+        try {
+            segmentos.values().forEach(DiarioEventos::cerrarSegmento);
+            persistido.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void persistirEnGrupo() {
+        while (true) {
+            Segmento segmento;
+            long objetivo;
+            int desde;
+            int hasta;
+
+            lock.lock();
+            try {
+                while (!cerrado && falla == null && ultimaPersistida >= ultimaEscrita) {
+                    hayPendientes.awaitUninterruptibly();
+                }
+                if (falla != null || ultimaPersistida >= ultimaEscrita) {
+                    return;
+                }
+                // Todo lo escrito hasta ahora está en el segmento actual: al rotar se fuerza el anterior
+                segmento = actual;
+                objetivo = ultimaEscrita;
+                desde = segmento.persistidoHasta;
+                hasta = segmento.bytesEscritos();
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException error = null;
+            try {
+                segmento.buffer.force(desde, hasta - desde);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    // Sin garantía de durabilidad el diario deja de aceptar eventos (falla detenida)
+                    falla = error;
+                } else {
+                    segmento.persistidoHasta = Math.max(segmento.persistidoHasta, hasta);
+                    ultimaPersistida = Math.max(ultimaPersistida, objetivo);
+                }
+                persistido.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Se llama con el lock tomado; fuerza el segmento lleno antes de abrir el siguiente
+    private void rotar() {
+        try {
+            actual.buffer.force();
+            actual.persistidoHasta = actual.bytesEscritos();
+            ultimaPersistida = ultimaEscrita;
+            persistido.signalAll();
+
+            actual = crearSegmento(ultimaEscrita + 1);
+            segmentos.put(actual.primeraSecuencia, actual);
+        } catch (IOException | RuntimeException e) {
+            falla = e instanceof RuntimeException runtime ? runtime : new UncheckedIOException((IOException) e);
+            persistido.signalAll();
+            throw falla;
+        }
+    }
+
+    private void verificarDisponible() {
+        if (falla != null) {
+            throw new IllegalStateException("El diario de eventos no está disponible", falla);
+        }
+        if (cerrado) {
+            throw new IllegalStateException("El diario de eventos está cerrado");
+        }
+    }
+
+    private void recuperar(long ultimaAplicada) throws IOException {
+        Files.createDirectories(directorio);
+
+        List<Path> archivos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directorio, PREFIJO_SEGMENTO + "*" + EXTENSION_SEGMENTO)) {
+            stream.forEach(archivos::add);
+        }
+        archivos.sort(null);
+
+        long esperada = -1;
+        for (Path archivo : archivos) {
+            Segmento segmento = abrirSegmento(archivo);
+            if (esperada >= 0 && segmento.primeraSecuencia != esperada) {
+                throw new IOException("Falta un segmento del diario antes de " + archivo);
+            }
+
+            while (!segmento.lleno() && leerRegistro(segmento, segmento.ultimaSecuencia + 1) != null) {
+                segmento.ultimaSecuencia++;
+            }
+            segmento.persistidoHasta = segmento.bytesEscritos();
+            segmentos.put(segmento.primeraSecuencia, segmento);
+            esperada = segmento.ultimaSecuencia + 1;
+        }
+
+        // Un registro incompleto solo puede estar al final del último segmento
+        for (Segmento segmento : segmentos.headMap(segmentos.isEmpty() ? 0 : segmentos.lastKey()).values()) {
+            if (!segmento.lleno()) {
+                throw new IOException("El segmento " + segmento.archivo + " del diario está dañado");
+            }
+        }
+
+        ultimaEscrita = Math.max(esperada - 1, ultimaAplicada);
+        ultimaPersistida = ultimaEscrita;
+
+        if (!segmentos.isEmpty() && segmentos.lastEntry().getValue().ultimaSecuencia >= ultimaAplicada) {
+            actual = segmentos.lastEntry().getValue();
+            limpiarCola(actual);
+        } else {
+            // Todo lo que hay en disco ya está aplicado: se empieza un segmento nuevo
+            segmentos.values().forEach(DiarioEventos::cerrarSegmento);
+            for (Segmento segmento : segmentos.values()) {
+                Files.deleteIfExists(segmento.archivo);
+            }
+            segmentos.clear();
+            actual = crearSegmento(ultimaEscrita + 1);
+            segmentos.put(actual.primeraSecuencia, actual);
+        }
+        descartarHasta(ultimaAplicada);
+    }
+
+    // Borra los restos posteriores al último registro válido para que no revivan en una recuperación futura
+    private void limpiarCola(Segmento segmento) {
+        // Se revisa toda la cola: las páginas pueden haber llegado a disco en cualquier orden
+        byte[] ceros = new byte[REGISTRO];
+        for (int posicion = segmento.bytesEscritos(); posicion < segmento.capacidad * REGISTRO; posicion += REGISTRO) {
+            if (segmento.buffer.getInt(posicion) != 0) {
+                segmento.buffer.put(posicion, ceros);
+            }
+        }
+        segmento.buffer.force();
+    }
+
+    private Segmento crearSegmento(long primeraSecuencia) throws IOException {
+        Path archivo = directorio.resolve(String.format("%s%020d%s", PREFIJO_SEGMENTO, primeraSecuencia, EXTENSION_SEGMENTO));
+        FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, (long) registrosPorSegmento * REGISTRO);
+
+        // El archivo nuevo debe sobrevivir a una caída junto con su entrada en el directorio
+        try (FileChannel carpeta = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            carpeta.force(true);
+        } catch (IOException e) {
+            // Algunos sistemas de archivos no permiten abrir directorios; el force del segmento sigue aplicando
+        }
+        return new Segmento(archivo, primeraSecuencia, canal, buffer);
+    }
+
+    private Segmento abrirSegmento(Path archivo) throws IOException {
+        String nombre = archivo.getFileName().toString();
+        long primeraSecuencia = Long.parseLong(
+                nombre.substring(PREFIJO_SEGMENTO.length(), nombre.length() - EXTENSION_SEGMENTO.length()));
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Se mapea con el tamaño del archivo por si el tamaño de segmento configurado cambió
+        MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size() / REGISTRO * REGISTRO);
+        return new Segmento(archivo, primeraSecuencia, canal, buffer);
+    }
+
+    private static void cerrarSegmento(Segmento segmento) {
+        try {
+            segmento.canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void escribir(Segmento segmento, Evento evento) {
+        ByteBuffer cuerpo = ByteBuffer.allocate(CUERPO);
+        cuerpo.put((byte) evento.tipo().ordinal());
+        cuerpo.putLong(evento.secuencia());
+        cuerpo.putLong(evento.vehiculoId());
+        cuerpo.putLong(evento.placaCodigo());
+        cuerpo.putLong(evento.parqueaderoId());
+        cuerpo.putLong(aMicrosegundos(evento.fecha()));
+        cuerpo.putLong(evento.tarifaPorHora() != null ? evento.tarifaPorHora().unscaledValue().longValueExact() : 0L);
+        cuerpo.putInt(evento.tarifaPorHora() != null ? evento.tarifaPorHora().scale() : 0);
+
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpo.array());
+
+        int posicion = (int) (evento.secuencia() - segmento.primeraSecuencia) * REGISTRO;
+        segmento.buffer.putInt(posicion + Integer.BYTES, (int) crc.getValue());
+        segmento.buffer.put(posicion + 2 * Integer.BYTES, cuerpo.array());
+        segmento.buffer.putInt(posicion, CUERPO);
+    }
+
+    // Devuelve null si el registro no está completo o no corresponde a la secuencia pedida
+    private Evento leerRegistro(Segmento segmento, long secuencia) {
+        long indice = secuencia - segmento.primeraSecuencia;
+        if (indice < 0 || indice >= segmento.capacidad) {
+            return null;
+        }
+
+        int posicion = (int) indice * REGISTRO;
+        if (segmento.buffer.getInt(posicion) != CUERPO) {
+            return null;
+        }
+
+        byte[] datos = new byte[CUERPO];
+        segmento.buffer.get(posicion + 2 * Integer.BYTES, datos);
+        CRC32C crc = new CRC32C();
+        crc.update(datos);
+        if ((int) crc.getValue() != segmento.buffer.getInt(posicion + Integer.BYTES)) {
+            return null;
+        }
+
+        ByteBuffer cuerpo = ByteBuffer.wrap(datos);
+        Tipo tipo = Tipo.values()[cuerpo.get()];
+        long secuenciaRegistro = cuerpo.getLong();
+        if (secuenciaRegistro != secuencia) {
+            return null;
+        }
+        long vehiculoId = cuerpo.getLong();
+        long placaCodigo = cuerpo.getLong();
+        long parqueaderoId = cuerpo.getLong();
+        LocalDateTime fecha = deMicrosegundos(cuerpo.getLong());
+        long tarifaSinEscala = cuerpo.getLong();
+        int escala = cuerpo.getInt();
+        BigDecimal tarifa = tipo == Tipo.SALIDA ? new BigDecimal(BigInteger.valueOf(tarifaSinEscala), escala) : null;
+
+        return new Evento(secuencia, tipo, vehiculoId, placaCodigo, parqueaderoId, fecha, tarifa);
+    }
+
+    private static long aMicrosegundos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + fecha.getNano() / 1_000;
+    }
+
+    private static LocalDateTime deMicrosegundos(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
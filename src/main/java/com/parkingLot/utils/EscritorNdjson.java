@@ -0,0 +1,34 @@
+package com.parkingLot.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Escribe un stream de objetos como NDJSON: un objeto JSON por línea, vaciando el buffer cada cierto número de filas
+public final class EscritorNdjson {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int FILAS_POR_FLUSH = 500;
+    private static final byte[] SALTO_LINEA = {'\n'};
+
+    private EscritorNdjson() {
+    }
+
+    public static int escribir(Stream<?> elementos, OutputStream salida, ObjectMapper objectMapper) throws IOException {
+        int escritos = 0;
+        Iterator<?> iterador = elementos.iterator();
+        while (iterador.hasNext()) {
+            salida.write(objectMapper.writeValueAsBytes(iterador.next()));
+            salida.write(SALTO_LINEA);
+            if (++escritos % FILAS_POR_FLUSH == 0) {
+                salida.flush();
+            }
+        }
+        salida.flush();
+        return escritos;
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkingLot.utils;
+
+import com.parkingLot.exceptions.BadRequestException;
+
+// Codifica una placa de 6 caracteres [A-Z0-9] como un número en base 36.
+// El primer carácter es el más significativo, así las placas con un mismo prefijo forman un rango contiguo.
+public final class PlacaCodec {
+
+    public static final int LONGITUD_PLACA = 6;
+    private static final int BASE = 36;
+    private static final char[] DIGITOS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private PlacaCodec() {
+    }
+
+    // Valida, normaliza (trim y mayúsculas) y codifica la placa en una sola pasada
+    public static long codificar(String placa) {
+        if (placa == null) {
+            throw new BadRequestException("La placa no puede estar vacía");
+        }
+
+        int inicio = 0;
+        int fin = placa.length();
+        while (inicio < fin && placa.charAt(inicio) <= ' ') {
+            inicio++;
+        }
+        while (fin > inicio && placa.charAt(fin - 1) <= ' ') {
+            fin--;
+        }
+
+        if (inicio == fin) {
+            throw new BadRequestException("La placa no puede estar vacía");
+        }
+
+        if (fin - inicio != LONGITUD_PLACA) {
+            String placaNormalizada = placa.trim().toUpperCase();
+            throw new BadRequestException(
+                    "La placa debe tener exactamente 6 caracteres. Placa recibida: '" + placaNormalizada + "' ("
+                            + placaNormalizada.length() + " caracteres)");
+        }
+
+        long codigo = 0;
+        for (int i = inicio; i < fin; i++) {
+            int valor = valorDe(placa.charAt(i));
+            if (valor < 0) {
+                throw new BadRequestException(
+                        "La placa solo puede contener caracteres alfanuméricos (A-Z, 0-9). No se permiten caracteres especiales ni la letra ñ");
+            }
+            codigo = codigo * BASE + valor;
+        }
+        return codigo;
+    }
+
+    // Rango [desde, hasta] de códigos de todas las placas que empiezan por el prefijo (1 a 6 caracteres)
+    public static long[] rangoDePrefijo(String prefijo) {
+        long codigo = 0;
+        for (int i = 0; i < prefijo.length(); i++) {
+            int valor = valorDe(prefijo.charAt(i));
+            if (valor < 0) {
+                throw new BadRequestException(
+                        "La placa solo puede contener caracteres alfanuméricos (A-Z, 0-9). No se permiten caracteres especiales ni la letra ñ");
+            }
+            codigo = codigo * BASE + valor;
+        }
+
+        long amplitud = 1;
+        for (int i = prefijo.length(); i < LONGITUD_PLACA; i++) {
+            amplitud *= BASE;
+        }
+        return new long[]{codigo * amplitud, (codigo + 1) * amplitud - 1};
+    }
+
+    public static String decodificar(long codigo) {
+        char[] placa = new char[LONGITUD_PLACA];
+        for (int i = LONGITUD_PLACA - 1; i >= 0; i--) {
+            placa[i] = DIGITOS[(int) (codigo % BASE)];
+            codigo /= BASE;
+        }
+        return new String(placa);
+    }
+
+    // Valor en base 36 de un carácter, o -1 si no es alfanumérico
+    public static int valorDe(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
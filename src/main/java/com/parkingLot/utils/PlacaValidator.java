@@ -2,12 +2,8 @@ package com.parkingLot.utils;
 
 import com.parkingLot.exceptions.BadRequestException;
 
-import java.util.regex.Pattern;
-
 public class PlacaValidator {
 
-    private static final Pattern PLACA_PATTERN = Pattern.compile("^[A-Z0-9]{6}$");
-
     public static void validarPlaca(String placa) {
         if (placa == null || placa.isEmpty()) {
             throw new BadRequestException("La placa no puede estar vacía");
@@ -19,21 +15,16 @@ public class PlacaValidator {
                             + " caracteres)");
         }
 
-        if (!PLACA_PATTERN.matcher(placa).matches()) {
-            throw new BadRequestException(
-                    "La placa solo puede contener caracteres alfanuméricos (A-Z, 0-9). No se permiten caracteres especiales ni la letra ñ");
+        for (int i = 0; i < placa.length(); i++) {
+            char c = placa.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                throw new BadRequestException(
+                        "La placa solo puede contener caracteres alfanuméricos (A-Z, 0-9). No se permiten caracteres especiales ni la letra ñ");
+            }
         }
     }
 
     public static String normalizarYValidarPlaca(String placa) {
-        if (placa == null) {
-            throw new BadRequestException("La placa no puede estar vacía");
-        }
-
-        String placaNormalizada = placa.trim().toUpperCase();
-
-        validarPlaca(placaNormalizada);
-
-        return placaNormalizada;
+        return PlacaCodec.decodificar(PlacaCodec.codificar(placa));
     }
 }
@@ -0,0 +1,310 @@
+package com.parkingLot;
+
+import com.parkingLot.dto.ParqueaderoRequest;
+import com.parkingLot.entities.User;
+import com.parkingLot.repositories.RoleRepository;
+import com.parkingLot.repositories.UserRepository;
+import com.parkingLot.services.OcupacionService;
+import com.parkingLot.services.ParqueaderoCacheService;
+import com.parkingLot.services.ParqueaderoService;
+import com.parkingLot.utils.PlacaCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Fija el número exacto de sentencias SQL por endpoint para detectar regresiones del plan de carga
+// (asociaciones perezosas que vuelven a disparar SELECTs secundarios, cachés que dejan de usarse, etc.).
+// Se cuentan en el DataSource, así se ven tanto las de Hibernate como las de JdbcTemplate; un batch JDBC
+// cuenta como una sentencia.
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConteoSentenciasSqlTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ContadorSentencias sentencias;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private ParqueaderoService parqueaderoService;
+
+    @Autowired
+    private ParqueaderoCacheService parqueaderoCacheService;
+
+    @Autowired
+    private OcupacionService ocupacionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User socio;
+    private Long parqueaderoId;
+    private String[] placas;
+
+    // Envuelve el DataSource y cuenta cada ejecución de sentencia (execute*, executeBatch)
+    @TestConfiguration
+    static class ContadorSentencias implements BeanPostProcessor {
+
+        private static final Set<String> CREAN_SENTENCIA = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+        private final AtomicInteger ejecutadas = new AtomicInteger();
+
+        void reiniciar() {
+            ejecutadas.set(0);
+        }
+
+        int ejecutadas() {
+            return ejecutadas.get();
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return envolver(dataSource, DataSource.class);
+            }
+            return bean;
+        }
+
+        private <T> T envolver(Object destino, Class<T> tipo) {
+            return tipo.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{tipo},
+                    (proxy, metodo, argumentos) -> {
+                        Object resultado = invocar(destino, metodo, argumentos);
+                        if (resultado instanceof Connection conexion && metodo.getName().equals("getConnection")) {
+                            return envolver(conexion, Connection.class);
+                        }
+                        if (resultado instanceof Statement && CREAN_SENTENCIA.contains(metodo.getName())) {
+                            return envolver(resultado, metodo.getReturnType());
+                        }
+                        if (destino instanceof Statement && metodo.getName().startsWith("execute")) {
+                            ejecutadas.incrementAndGet();
+                        }
+                        return resultado;
+                    }));
+        }
+
+        private static Object invocar(Object destino, Method metodo, Object[] argumentos) throws Throwable {
+            try {
+                return metodo.invoke(destino, argumentos);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @BeforeEach
+    void prepararDatos() {
+        long sufijo = ThreadLocalRandom.current().nextLong(36L * 36 * 36 * 36 * 36);
+
+        socio = userRepository.save(User.builder()
+                .nombre("Socio conteo")
+                .email("conteo" + sufijo + "@mail.com")
+                .password("sin-uso")
+                .role(roleRepository.findByNombre("SOCIO").orElseThrow())
+                .active(true)
+                .build());
+
+        ParqueaderoRequest request = new ParqueaderoRequest();
+        request.setNombre("Conteo " + sufijo);
+        request.setDireccion("Calle de pruebas");
+        request.setCapacidadMaxima(10);
+        request.setCostoPorHora(new BigDecimal("3000"));
+        request.setSocioId(socio.getId());
+        parqueaderoId = parqueaderoService.crear(request).getId();
+
+        // Placas de 6 caracteres que empiezan por Z, Y y X para no chocar con datos reales
+        long unidad = 36L * 36 * 36 * 36 * 36;
+        placas = new String[]{
+                PlacaCodec.decodificar(35 * unidad + sufijo),
+                PlacaCodec.decodificar(34 * unidad + sufijo),
+                PlacaCodec.decodificar(33 * unidad + sufijo)};
+
+        // Calienta la caché de parqueaderos y el contador de ocupación antes de medir
+        parqueaderoCacheService.obtenerExistente(parqueaderoId);
+        ocupacionService.obtenerOcupacion(parqueaderoId);
+    }
+
+    @AfterEach
+    void limpiarDatos() {
+        jdbcTemplate.update("DELETE FROM vehiculos WHERE parqueadero_id = ?", parqueaderoId);
+        jdbcTemplate.update("DELETE FROM vehiculos_historial WHERE parqueadero_id = ?", parqueaderoId);
+        jdbcTemplate.update("DELETE FROM placa_parqueadero_stats WHERE parqueadero_id = ?", parqueaderoId);
+        jdbcTemplate.update("DELETE FROM ganancias_diarias WHERE parqueadero_id = ?", parqueaderoId);
+        parqueaderoService.eliminarDefinitivamente(parqueaderoId);
+        userRepository.deleteById(socio.getId());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void listarParqueaderosTraeAlSocioEnLaMismaConsulta() throws Exception {
+        assertSentencias(1, get("/api/parqueaderos"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void obtenerParqueaderoPorIdEsUnaSolaConsulta() throws Exception {
+        assertSentencias(1, get("/api/parqueaderos/" + parqueaderoId));
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void registrarIngresoYSalidaUsanElMinimoDeSentencias() throws Exception {
+        String cuerpo = "{\"placa\":\"" + placas[0] + "\",\"parqueaderoId\":" + parqueaderoId + "}";
+
+        // Ingreso: solo el INSERT, el parqueadero y la ocupación salen de memoria
+        sentencias.reiniciar();
+        mockMvc.perform(post("/api/vehiculos/registrar-ingreso")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo))
+                .andExpect(status().isCreated());
+        assertEquals(1, sentencias.ejecutadas());
+
+        // Listados: una proyección sobre vehiculos, sin cargar el parqueadero por fila
+        assertSentencias(1, get("/api/vehiculos/parqueadero/" + parqueaderoId));
+        assertSentencias(1, get("/api/vehiculos/parqueadero/" + parqueaderoId + "/pagina"));
+        assertSentencias(1, get("/api/vehiculos/primera-vez/parqueadero/" + parqueaderoId));
+        assertSentenciasAsync(1, get("/api/vehiculos/parqueadero/" + parqueaderoId + "/exportar"));
+
+        // Búsqueda por fragmento: índice de n-gramas en memoria
+        assertSentencias(0, get("/api/vehiculos/buscar").param("placa", placas[0].substring(1, 4)));
+
+        // Salida: una sola sentencia con CTEs que mueve el vehículo al historial y acumula estadísticas y ganancias
+        sentencias.reiniciar();
+        mockMvc.perform(post("/api/vehiculos/registrar-salida")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo))
+                .andExpect(status().isOk());
+        assertEquals(1, sentencias.ejecutadas());
+
+        assertSentencias(1, get("/api/vehiculos/estadisticas/parqueadero/" + parqueaderoId + "/placa/" + placas[0]));
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void registrarLotesUsanUnBatchPorTabla() throws Exception {
+        StringBuilder ingresos = new StringBuilder();
+        StringBuilder salidas = new StringBuilder();
+        for (String placa : placas) {
+            String item = "{\"placa\":\"" + placa + "\",\"parqueaderoId\":" + parqueaderoId + "}";
+            ingresos.append(ingresos.isEmpty() ? "" : ",").append(item);
+            salidas.append(salidas.isEmpty() ? "" : ",").append(item);
+        }
+
+        // Un único INSERT en batch con los IDs generados
+        sentencias.reiniciar();
+        mockMvc.perform(post("/api/vehiculos/registrar-ingreso/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ingresos\":[" + ingresos + "]}"))
+                .andExpect(status().isOk());
+        assertEquals(1, sentencias.ejecutadas());
+
+        // Lectura de los vehículos, batch al historial, batch de estadísticas, borrado y ganancias del parqueadero
+        sentencias.reiniciar();
+        mockMvc.perform(post("/api/vehiculos/registrar-salida/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salidas\":[" + salidas + "]}"))
+                .andExpect(status().isOk());
+        assertEquals(5, sentencias.ejecutadas());
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void gananciasSeResuelvenConUnaConsulta() throws Exception {
+        String sufijo = "/parqueadero/" + parqueaderoId;
+        for (String periodo : new String[]{"hoy", "semana", "mes", "anio"}) {
+            assertSentencias(1, get("/api/vehiculos/ganancias/" + periodo + sufijo));
+        }
+
+        LocalDate hoy = LocalDate.now();
+        assertSentencias(1, get("/api/vehiculos/ganancias" + sufijo)
+                .param("desde", hoy.minusDays(30).toString())
+                .param("hasta", hoy.toString()));
+        assertSentencias(1, get("/api/vehiculos/ganancias" + sufijo)
+                .param("desde", hoy.toString())
+                .param("hasta", hoy.toString())
+                .param("bucket", "hour"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void rankingsSinVentanaSalenDeMemoria() throws Exception {
+        assertSentencias(0, get("/api/vehiculos/top-10-frecuentes"));
+        assertSentencias(0, get("/api/vehiculos/top-10-frecuentes/parqueadero/" + parqueaderoId));
+
+        // Con ventana de días se agrupa solo ese rango en una consulta
+        assertSentencias(1, get("/api/vehiculos/top-10-frecuentes").param("dias", "7"));
+        assertSentencias(1, get("/api/vehiculos/top-10-frecuentes/parqueadero/" + parqueaderoId).param("dias", "7"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void historialSeBuscaYExportaConUnaConsulta() throws Exception {
+        String hoy = LocalDate.now().toString();
+
+        assertSentencias(1, get("/api/vehiculos/historial/buscar")
+                .param("parqueaderoId", parqueaderoId.toString())
+                .param("desde", hoy)
+                .param("hasta", hoy));
+        assertSentencias(1, get("/api/vehiculos/historial/buscar")
+                .param("placa", placas[0].substring(0, 3))
+                .param("desde", hoy)
+                .param("hasta", hoy));
+        assertSentencias(1, get("/api/vehiculos/historial/buscar")
+                .param("placa", placas[0].substring(2, 5))
+                .param("coincidencia", "contiene")
+                .param("desde", hoy)
+                .param("hasta", hoy));
+        assertSentenciasAsync(1, get("/api/vehiculos/historial/exportar")
+                .param("parqueaderoId", parqueaderoId.toString()));
+    }
+
+    private void assertSentencias(int esperadas, RequestBuilder solicitud) throws Exception {
+        sentencias.reiniciar();
+        mockMvc.perform(solicitud).andExpect(status().isOk());
+        assertEquals(esperadas, sentencias.ejecutadas());
+    }
+
+    // Exportaciones NDJSON: el cuerpo se escribe en el despacho asíncrono
+    private void assertSentenciasAsync(int esperadas, RequestBuilder solicitud) throws Exception {
+        sentencias.reiniciar();
+        MvcResult resultado = mockMvc.perform(solicitud).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isOk());
+        assertEquals(esperadas, sentencias.ejecutadas());
+    }
+}
@@ -0,0 +1,79 @@
+package com.parkingLot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+// Mide el tiempo de una verificación BCrypt por costo y recomienda el mayor costo que cumple la latencia objetivo.
+// Se ejecuta con el método main desde el IDE o con:
+//   mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.parkingLot.benchmarks.BCryptStrengthBenchmark
+// La latencia objetivo en milisegundos se indica con -Dlatencia.objetivo.ms (por defecto 250).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptStrengthBenchmark {
+
+    private static final String CONTRASENA = "ContrasenaDePrueba123";
+
+    @Param({"8", "9", "10", "11", "12", "13", "14"})
+    private int costo;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void preparar() {
+        encoder = new BCryptPasswordEncoder(costo);
+        hash = encoder.encode(CONTRASENA);
+    }
+
+    @Benchmark
+    public boolean verificar() {
+        return encoder.matches(CONTRASENA, hash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        double objetivoMs = Double.parseDouble(System.getProperty("latencia.objetivo.ms", "250"));
+
+        Options opciones = new OptionsBuilder()
+                .include(BCryptStrengthBenchmark.class.getSimpleName())
+                .build();
+        Collection<RunResult> resultados = new Runner(opciones).run();
+
+        int recomendado = -1;
+        for (RunResult resultado : resultados) {
+            int costo = Integer.parseInt(resultado.getParams().getParam("costo"));
+            double promedioMs = resultado.getPrimaryResult().getScore();
+            System.out.printf("costo %d: %.2f ms por verificación%n", costo, promedioMs);
+            if (promedioMs <= objetivoMs && costo > recomendado) {
+                recomendado = costo;
+            }
+        }
+
+        if (recomendado < 0) {
+            System.out.printf("Ningún costo cumple la latencia objetivo de %.0f ms%n", objetivoMs);
+        } else {
+            System.out.printf("Costo recomendado para %.0f ms: parking.seguridad.bcrypt.costo=%d%n", objetivoMs, recomendado);
+        }
+    }
+}
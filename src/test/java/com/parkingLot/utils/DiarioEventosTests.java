@@ -0,0 +1,195 @@
+package com.parkingLot.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiarioEventosTests {
+
+    // Tamaño de un registro en disco: [longitud][crc32c] + cuerpo de 53 bytes
+    private static final int REGISTRO = 61;
+    private static final int TAMANO_SEGMENTO = 1024 * 1024;
+    private static final LocalDateTime FECHA = LocalDateTime.of(2026, 10, 18, 8, 30, 15, 123_456_000);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void losEventosAnexadosSobrevivenAlReabrir() throws IOException {
+        List<DiarioEventos.Evento> anexados;
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            anexados = anexar(diario, 5);
+            assertEquals(anexados, diario.leer(0, 10));
+        }
+
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            assertEquals(5, diario.ultimaPersistida());
+            assertEquals(anexados, diario.leer(0, 10));
+            assertEquals(anexados.subList(2, 4), diario.leer(2, 2));
+            assertEquals(6, diario.anexar(DiarioEventos.Tipo.INGRESO, 6, 6, 1, FECHA, null));
+        }
+    }
+
+    @Test
+    void unRegistroFinalConCrcInvalidoSeDescarta() throws IOException {
+        List<DiarioEventos.Evento> anexados;
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            anexados = anexar(diario, 3);
+        }
+
+        // Un byte del cuerpo del tercer registro cambia sin actualizar su CRC
+        Path segmento = unicoSegmento();
+        int posicion = 2 * REGISTRO + 8 + 10;
+        escribir(segmento, posicion, new byte[]{(byte) ~leer(segmento, posicion)});
+
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            assertEquals(2, diario.ultimaPersistida());
+            assertEquals(anexados.subList(0, 2), diario.leer(0, 10));
+            // La secuencia 3 se vuelve a usar para el siguiente evento
+            assertEquals(3, diario.anexar(DiarioEventos.Tipo.INGRESO, 30, 30, 1, FECHA, null));
+        }
+    }
+
+    @Test
+    void unRegistroFinalIncompletoSeDescarta() throws IOException {
+        List<DiarioEventos.Evento> anexados;
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            anexados = anexar(diario, 3);
+        }
+
+        // Caída a mitad de escritura: la longitud y el inicio del cuerpo llegaron a disco, el resto no
+        Path segmento = unicoSegmento();
+        escribir(segmento, 2 * REGISTRO + 8 + 20, new byte[REGISTRO - 8 - 20]);
+
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            assertEquals(2, diario.ultimaPersistida());
+            assertEquals(anexados.subList(0, 2), diario.leer(0, 10));
+        }
+
+        // La cola se limpió en la recuperación: el registro dañado no reaparece al volver a abrir
+        assertEquals(0, ByteBuffer.wrap(leerBytes(segmento, 2 * REGISTRO, 4)).getInt());
+    }
+
+    @Test
+    void losEventosSeLeenEnOrdenAtravesandoSegmentos() throws IOException {
+        int tamanoSegmento = 4 * REGISTRO;
+        List<DiarioEventos.Evento> anexados;
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, tamanoSegmento, 0)) {
+            anexados = anexar(diario, 10);
+            assertEquals(3, segmentos().size());
+            assertEquals(anexados, diario.leer(0, 100));
+        }
+
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, tamanoSegmento, 0)) {
+            assertEquals(10, diario.ultimaPersistida());
+            assertEquals(anexados, diario.leer(0, 100));
+            assertEquals(anexados.subList(3, 9), diario.leer(3, 6));
+
+            // Solo se borran los segmentos cerrados con todos sus eventos aplicados
+            diario.descartarHasta(7);
+            assertEquals(2, segmentos().size());
+            diario.descartarHasta(10);
+            assertEquals(1, segmentos().size());
+            assertEquals(anexados.subList(8, 10), diario.leer(8, 100));
+        }
+    }
+
+    @Test
+    void alReabrirConTodoAplicadoSeBorranLosSegmentosCerrados() throws IOException {
+        int tamanoSegmento = 4 * REGISTRO;
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, tamanoSegmento, 0)) {
+            anexar(diario, 8);
+            assertEquals(2, segmentos().size());
+        }
+
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, tamanoSegmento, 8)) {
+            assertEquals(8, diario.ultimaPersistida());
+            assertTrue(diario.leer(8, 10).isEmpty());
+            assertEquals(List.of(segmento(5)), segmentos());
+
+            // El segmento 5-8 está lleno: el siguiente evento abre uno nuevo
+            long secuencia = diario.anexar(DiarioEventos.Tipo.INGRESO, 90, 90, 1, FECHA, null);
+            diario.esperarPersistencia(secuencia);
+            assertEquals(9, secuencia);
+            assertEquals(List.of(segmento(5), segmento(9)), segmentos());
+            assertEquals(1, diario.leer(8, 10).size());
+        }
+    }
+
+    @Test
+    void siLaBaseDeDatosVaAdelanteDelDiarioSeContinuaDesdeSuSecuencia() throws IOException {
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 0)) {
+            anexar(diario, 3);
+        }
+
+        try (DiarioEventos diario = DiarioEventos.abrir(directorio, TAMANO_SEGMENTO, 12)) {
+            assertEquals(12, diario.ultimaPersistida());
+            assertTrue(diario.leer(12, 10).isEmpty());
+            assertEquals(List.of(segmento(13)), segmentos());
+            assertEquals(13, diario.anexar(DiarioEventos.Tipo.INGRESO, 130, 130, 1, FECHA, null));
+        }
+    }
+
+    // Alterna ingresos y salidas; las salidas llevan tarifa con escala para verificar que se conserva
+    private static List<DiarioEventos.Evento> anexar(DiarioEventos diario, int cantidad) {
+        List<DiarioEventos.Evento> eventos = new ArrayList<>();
+        for (int i = 1; i <= cantidad; i++) {
+            DiarioEventos.Tipo tipo = i % 2 == 1 ? DiarioEventos.Tipo.INGRESO : DiarioEventos.Tipo.SALIDA;
+            BigDecimal tarifa = tipo == DiarioEventos.Tipo.SALIDA ? new BigDecimal("3000.50") : null;
+            LocalDateTime fecha = FECHA.plusMinutes(i);
+            long secuencia = diario.anexar(tipo, 100 + i, PlacaCodec.codificar("ABC12" + i % 10), 7, fecha, tarifa);
+            eventos.add(new DiarioEventos.Evento(secuencia, tipo, 100 + i, PlacaCodec.codificar("ABC12" + i % 10),
+                    7, fecha, tarifa));
+        }
+        diario.esperarPersistencia(eventos.get(eventos.size() - 1).secuencia());
+        return eventos;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.sorted().toList();
+        }
+    }
+
+    private Path segmento(long primeraSecuencia) {
+        return directorio.resolve(String.format("segmento-%020d.log", primeraSecuencia));
+    }
+
+    private Path unicoSegmento() throws IOException {
+        List<Path> archivos = segmentos();
+        assertEquals(1, archivos.size());
+        return archivos.get(0);
+    }
+
+    private static byte leer(Path archivo, int posicion) throws IOException {
+        return leerBytes(archivo, posicion, 1)[0];
+    }
+
+    private static byte[] leerBytes(Path archivo, int posicion, int cantidad) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(cantidad);
+            canal.read(buffer, posicion);
+            return buffer.array();
+        }
+    }
+
+    private static void escribir(Path archivo, int posicion, byte[] datos) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(datos), posicion);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.parkingLot.utils;
+
+import com.parkingLot.exceptions.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PlacaCodecTests {
+
+    @Test
+    void codificarYDecodificarConservanLaPlaca() {
+        for (String placa : new String[]{"000000", "ABC123", "ZZZZZZ", "A1B2C3", "9Z0Y8X"}) {
+            assertEquals(placa, PlacaCodec.decodificar(PlacaCodec.codificar(placa)));
+        }
+    }
+
+    @Test
+    void losExtremosDelRangoSonCeroYElMaximoDeSeisDigitos() {
+        assertEquals(0L, PlacaCodec.codificar("000000"));
+        assertEquals(36L * 36 * 36 * 36 * 36 * 36 - 1, PlacaCodec.codificar("ZZZZZZ"));
+    }
+
+    @Test
+    void normalizaMinusculasYEspaciosAlrededor() {
+        assertEquals(PlacaCodec.codificar("ABC123"), PlacaCodec.codificar("abc123"));
+        assertEquals(PlacaCodec.codificar("ABC123"), PlacaCodec.codificar("  aBc123\t"));
+        assertEquals("ABC123", PlacaCodec.decodificar(PlacaCodec.codificar(" abc123 ")));
+    }
+
+    @Test
+    void rechazaCaracteresInvalidos() {
+        for (String placa : new String[]{"ABC-12", "ABÑ123", "AB C12", "ABC12!", "ÁBC123"}) {
+            assertThrows(BadRequestException.class, () -> PlacaCodec.codificar(placa), placa);
+        }
+    }
+
+    @Test
+    void rechazaLongitudesDistintasDeSeis() {
+        for (String placa : new String[]{"ABC12", "ABC1234", "A", " ABC12 "}) {
+            assertThrows(BadRequestException.class, () -> PlacaCodec.codificar(placa), placa);
+        }
+    }
+
+    @Test
+    void rechazaPlacasVacias() {
+        assertThrows(BadRequestException.class, () -> PlacaCodec.codificar(null));
+        assertThrows(BadRequestException.class, () -> PlacaCodec.codificar(""));
+        assertThrows(BadRequestException.class, () -> PlacaCodec.codificar("   "));
+    }
+
+    @Test
+    void elRangoDeUnPrefijoCubreTodasSusPlacas() {
+        long[] rango = PlacaCodec.rangoDePrefijo("AB");
+        assertArrayEquals(new long[]{PlacaCodec.codificar("AB0000"), PlacaCodec.codificar("ABZZZZ")}, rango);
+        assertArrayEquals(new long[]{PlacaCodec.codificar("ABC123"), PlacaCodec.codificar("ABC123")},
+                PlacaCodec.rangoDePrefijo("ABC123"));
+    }
+}